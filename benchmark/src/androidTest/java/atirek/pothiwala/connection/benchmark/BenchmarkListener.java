@@ -0,0 +1,54 @@
+package atirek.pothiwala.connection.benchmark;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.ConnectListener;
+import atirek.pothiwala.connection.extensions.ErrorCode;
+
+/**
+ * Waits for a number of Connector results and fails the benchmark on the first error.
+ */
+class BenchmarkListener implements ConnectListener {
+
+    private CountDownLatch latch;
+    private volatile String error;
+
+    void expect(int results) {
+        latch = new CountDownLatch(results);
+        error = null;
+    }
+
+    void await() throws InterruptedException {
+        if (!latch.await(1, TimeUnit.MINUTES)) {
+            throw new AssertionError("Timed out waiting for results");
+        }
+        if (error != null) {
+            throw new AssertionError(error);
+        }
+    }
+
+    @Override
+    public void onResult(int statusCode, @Nullable String data, @Nullable String message) {
+        if (statusCode != 200) {
+            error = "Unexpected status code " + statusCode;
+        } else if (data != null && data.startsWith("file:")) {
+            // Downloads are deleted so that storage does not fill up across iterations.
+            //noinspection ResultOfMethodCallIgnored
+            new File(Uri.parse(data).getPath()).delete();
+        }
+        latch.countDown();
+    }
+
+    @Override
+    public void onError(@NonNull ErrorCode code) {
+        error = "Request failed with " + code;
+        latch.countDown();
+    }
+}
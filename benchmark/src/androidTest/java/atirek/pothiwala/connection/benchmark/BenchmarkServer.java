@@ -0,0 +1,86 @@
+package atirek.pothiwala.connection.benchmark;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import atirek.pothiwala.connection.Connector;
+import okhttp3.MultipartBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import retrofit2.Call;
+import retrofit2.http.GET;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.Part;
+import retrofit2.http.Streaming;
+
+/**
+ * Local server answering every benchmark endpoint, so results do not depend on the network.
+ */
+class BenchmarkServer {
+
+    interface Service {
+        @GET("json")
+        Call<String> json();
+
+        @Streaming
+        @GET("file.bin")
+        Call<ResponseBody> file();
+
+        @Multipart
+        @POST("upload")
+        Call<String> upload(@Part MultipartBody.Part part);
+    }
+
+    static final String JSON = "{\"id\":1,\"name\":\"Connector\",\"tags\":[\"network\",\"benchmark\"]}";
+
+    private final MockWebServer server = new MockWebServer();
+    private final Buffer file = new Buffer();
+    private Service service;
+
+    BenchmarkServer(long fileSize) {
+        byte[] chunk = new byte[64 * 1024];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) i;
+        }
+        while (file.size() < fileSize) {
+            file.write(chunk, 0, (int) Math.min(chunk.length, fileSize - file.size()));
+        }
+    }
+
+    @NonNull
+    Service start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start();
+        service = Connector.createClient(server.url("/").toString()).create(Service.class);
+        return service;
+    }
+
+    void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        switch (request.getPath()) {
+            case "/json":
+                return new MockResponse().setBody(JSON);
+            case "/file.bin":
+                return new MockResponse().setBody(file.clone());
+            case "/upload":
+                return new MockResponse().setBody("{\"received\":" + request.getBodySize() + "}");
+            default:
+                return new MockResponse().setResponseCode(404);
+        }
+    }
+}
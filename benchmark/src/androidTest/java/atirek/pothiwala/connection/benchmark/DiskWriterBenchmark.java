@@ -0,0 +1,130 @@
+package atirek.pothiwala.connection.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import atirek.pothiwala.connection.helpers.DiskWriter;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Writing a body of {@link #SIZE} bytes to disk, comparing the previous 4 KB array copy loop of
+ * writeToDisk with {@link DiskWriter}. Besides the time per write, the best throughput in MB/s is logged under {@link #TAG}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiskWriterBenchmark {
+
+    private static final String TAG = "DiskWriterBenchmark";
+    private static final long SIZE = 128 * 1024 * 1024;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(), "disk-writer.bin");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void legacyCopy() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        byte[] fileReader = new byte[4096];
+        long best = Long.MAX_VALUE;
+        while (state.keepRunning()) {
+            long start = System.nanoTime();
+            BufferedSource source = Okio.buffer(new FakeNetworkSource(SIZE));
+            try (InputStream inputStream = source.inputStream(); OutputStream outputStream = new FileOutputStream(file, false)) {
+                int read;
+                while ((read = inputStream.read(fileReader)) != -1) {
+                    outputStream.write(fileReader, 0, read);
+                }
+                outputStream.flush();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertEquals(SIZE, file.length());
+        reportThroughput("legacyCopy", best);
+    }
+
+    @Test
+    public void diskWriter() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        long best = Long.MAX_VALUE;
+        while (state.keepRunning()) {
+            long start = System.nanoTime();
+            new DiskWriter().write(Okio.buffer(new FakeNetworkSource(SIZE)), file, 0, -1, SIZE, null);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertEquals(SIZE, file.length());
+        reportThroughput("diskWriter", best);
+    }
+
+    private static void reportThroughput(@NonNull String name, long nanos) {
+        double throughput = SIZE / (1024.0 * 1024.0) / (nanos / 1e9);
+        Log.i(TAG, String.format(Locale.US, "%s %d MB: %.1f MB/s", name, SIZE / (1024 * 1024), throughput));
+    }
+
+    /**
+     * Produces bytes the way a socket source does, one Okio segment at a time.
+     */
+    private static class FakeNetworkSource implements Source {
+        private final byte[] chunk = new byte[8192];
+        private long remaining;
+
+        FakeNetworkSource(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(byteCount, chunk.length), remaining);
+            sink.write(chunk, 0, count);
+            remaining -= count;
+            return count;
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
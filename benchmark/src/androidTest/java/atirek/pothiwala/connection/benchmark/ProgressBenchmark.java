@@ -0,0 +1,45 @@
+package atirek.pothiwala.connection.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import atirek.pothiwala.connection.extensions.ProgressListener;
+import atirek.pothiwala.connection.extensions.ProgressUpdater;
+import atirek.pothiwala.connection.helpers.MainThreadExecutor;
+
+/**
+ * Overhead of progress updates for a transfer of {@link #UPDATES} buffers, including the work
+ * done on the main Looper until it is idle again.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProgressBenchmark {
+
+    private static final int UPDATES = 4096;
+    private static final long BUFFER = 2048;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final ProgressListener listener = (currentPercent, totalPercent) -> {
+        // Listener work is out of scope, only dispatch is measured.
+    };
+
+    @Test
+    public void progressDispatch() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ProgressUpdater updater = new ProgressUpdater(listener, MainThreadExecutor.get());
+            for (int i = 1; i <= UPDATES; i++) {
+                updater.update(i * BUFFER, UPDATES * BUFFER);
+            }
+            updater.complete();
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+    }
+}
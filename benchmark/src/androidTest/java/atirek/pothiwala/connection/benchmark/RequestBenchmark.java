@@ -0,0 +1,68 @@
+package atirek.pothiwala.connection.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import atirek.pothiwala.connection.Connector;
+
+/**
+ * Throughput of {@link Connector#request(String, retrofit2.Call)} with a number of requests in flight at once.
+ * One iteration is a round of concurrent requests, so the reported allocation count divided by the
+ * concurrency is the allocation per request.
+ */
+@RunWith(Parameterized.class)
+public class RequestBenchmark {
+
+    @Parameterized.Parameters(name = "concurrency={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{1}, {4}, {16}, {64}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int concurrency;
+    private final BenchmarkServer server = new BenchmarkServer(0);
+    private final BenchmarkListener listener = new BenchmarkListener();
+    private BenchmarkServer.Service service;
+    private Connector connector;
+
+    public RequestBenchmark(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        service = server.start();
+        connector = new Connector(InstrumentationRegistry.getInstrumentation().getTargetContext())
+                .setListener(listener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void request() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            listener.expect(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                connector.request("RequestBenchmark", service.json());
+            }
+            listener.await();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package atirek.pothiwala.connection.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import atirek.pothiwala.connection.Connector;
+import atirek.pothiwala.connection.helpers.DiskWriter;
+import atirek.pothiwala.connection.helpers.ProgressRequestBody;
+import atirek.pothiwala.connection.helpers.RequestCreator;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Transfer speed of downloads and uploads of {@link #SIZE} bytes, MB/s is SIZE divided by the reported time.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransferBenchmark {
+
+    private static final int SIZE = 8 * 1024 * 1024;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final BenchmarkServer server = new BenchmarkServer(SIZE);
+    private final BenchmarkListener listener = new BenchmarkListener();
+    private BenchmarkServer.Service service;
+    private Connector connector;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        service = server.start();
+        connector = new Connector(context).setListener(listener);
+
+        file = new File(context.getCacheDir(), "benchmark.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[SIZE]);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * Whole download through the scheduler, network stack and disk.
+     */
+    @Test
+    public void download() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            listener.expect(1);
+            connector.download("TransferBenchmark", service.file());
+            listener.await();
+        }
+    }
+
+    /**
+     * Disk writes only, as done by Connector for every download.
+     */
+    @Test
+    public void writeToDisk() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        DiskWriter writer = new DiskWriter();
+        byte[] data = new byte[SIZE];
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            Buffer source = new Buffer().write(data);
+            state.resumeTiming();
+
+            writer.write(source, file, 0, -1, -1, null);
+        }
+    }
+
+    /**
+     * Whole multipart upload through the network stack.
+     */
+    @Test
+    public void upload() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            listener.expect(1);
+            connector.request("TransferBenchmark", service.upload(RequestCreator.createPartFromFile("file", file.getPath(), null)));
+            listener.await();
+        }
+    }
+
+    /**
+     * Reads of the upload body only, without the network.
+     */
+    @Test
+    public void uploadBody() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        ProgressRequestBody body = new ProgressRequestBody(null, file);
+        BufferedSink sink = Okio.buffer(Okio.blackhole());
+        while (state.keepRunning()) {
+            body.writeTo(sink);
+            sink.flush();
+        }
+    }
+}
@@ -7,54 +7,104 @@ package atirek.pothiwala.connection;
 import android.app.Dialog;
 import android.content.Context;
 import android.net.Uri;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import android.os.Environment;
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
 import android.webkit.MimeTypeMap;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import atirek.pothiwala.connection.extensions.BatchListener;
+import atirek.pothiwala.connection.extensions.BatchMode;
+import atirek.pothiwala.connection.extensions.BatchResult;
+import atirek.pothiwala.connection.extensions.CacheMode;
+import atirek.pothiwala.connection.extensions.CompressionStats;
+import atirek.pothiwala.connection.extensions.ConnectFuture;
 import atirek.pothiwala.connection.extensions.ConnectListener;
+import atirek.pothiwala.connection.extensions.ConnectResult;
+import atirek.pothiwala.connection.extensions.DnsStats;
 import atirek.pothiwala.connection.extensions.ErrorCode;
+import atirek.pothiwala.connection.extensions.FsyncPolicy;
+import atirek.pothiwala.connection.extensions.Lane;
+import atirek.pothiwala.connection.extensions.MetricsSnapshot;
+import atirek.pothiwala.connection.extensions.NetworkQuality;
 import atirek.pothiwala.connection.extensions.ProgressListener;
+import atirek.pothiwala.connection.extensions.Priority;
 import atirek.pothiwala.connection.extensions.ProgressUpdater;
+import atirek.pothiwala.connection.extensions.TypedListener;
+import atirek.pothiwala.connection.helpers.BinaryConverterFactory;
+import atirek.pothiwala.connection.helpers.CircuitBreaker;
+import atirek.pothiwala.connection.helpers.ClientConfig;
+import atirek.pothiwala.connection.helpers.ClientRegistry;
 import atirek.pothiwala.connection.helpers.Connectivity;
-import okhttp3.OkHttpClient;
+import atirek.pothiwala.connection.helpers.ConnectorMetrics;
+import atirek.pothiwala.connection.helpers.DiskWriter;
+import atirek.pothiwala.connection.helpers.DownloadEngine;
+import atirek.pothiwala.connection.helpers.DownloadScheduler;
+import atirek.pothiwala.connection.helpers.DownloadStore;
+import atirek.pothiwala.connection.helpers.MainThreadExecutor;
+import atirek.pothiwala.connection.helpers.NetworkQualityEstimator;
+import atirek.pothiwala.connection.helpers.OfflineQueue;
+import atirek.pothiwala.connection.helpers.RequestCoalescer;
+import atirek.pothiwala.connection.helpers.RequestOptions;
+import atirek.pothiwala.connection.helpers.RequestScheduler;
+import atirek.pothiwala.connection.helpers.ResponseCache;
+import atirek.pothiwala.connection.helpers.RetryCall;
+import atirek.pothiwala.connection.helpers.RetryPolicy;
+import atirek.pothiwala.connection.helpers.RingBufferSink;
+import atirek.pothiwala.connection.helpers.Tracer;
+import atirek.pothiwala.connection.helpers.UploadEngine;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
-import okio.Buffer;
+import okio.ByteString;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 import retrofit2.Retrofit;
-import retrofit2.converter.scalars.ScalarsConverterFactory;
 
+/**
+ * A Connector is safe to share between threads, e.g. one per app or per client.
+ * Listener and UI bindings of a call are passed with {@link RequestOptions}, the setters of listener, loader,
+ * refresh layout, retry policy, lane and lifecycle owner only set the defaults of calls which do not override them.
+ */
 public class Connector {
 
     private final Context context;
-    private boolean enableDebug;
-    private ConnectListener connectListener;
-    private ProgressListener progressListener;
-    private SwipeRefreshLayout refreshLayout;
-    private Dialog loader;
+    private volatile Tracer tracer = new Tracer();
+    private volatile boolean resumable;
+    private volatile boolean downloadStore;
+    private volatile int downloadSegments = 4;
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.none;
+    private volatile Priority downloadPriority = Priority.normal;
+    private volatile long uploadChunkSize = 5 * 1024 * 1024;
+    private volatile int uploadParallelism = 3;
+    private volatile CacheMode cacheMode = CacheMode.none;
+    private volatile boolean coalescing;
+    private volatile String accountScope;
+    private volatile boolean offlineQueue;
+    private volatile RequestOptions defaults = new RequestOptions().setLane(Lane.normal).setRetryPolicy(null);
+    private final ConcurrentMap<Call<?>, DownloadTask> downloads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Call<?>, ScheduledCall<?>> scheduled = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Call<?>, HeldCall> held = new ConcurrentHashMap<>();
 
     public Connector(@NonNull Context context) {
         this.context = context;
@@ -64,7 +114,15 @@ public class Connector {
      * To enable Debug Mode which will show logs in your Android Studio LOGCAT
      */
     public Connector setDebug(boolean enable) {
-        this.enableDebug = enable;
+        this.tracer = enable ? Tracer.logcat() : new Tracer();
+        return this;
+    }
+
+    /**
+     * Set a custom tracer, e.g. with a {@link RingBufferSink} to dump recent traces when a crash happens.
+     */
+    public Connector setTracer(@NonNull Tracer tracer) {
+        this.tracer = tracer;
         return this;
     }
 
@@ -72,7 +130,9 @@ public class Connector {
      * Set refresh layout which will be automatically handled.
      */
     public Connector setRefreshLayout(@Nullable SwipeRefreshLayout refreshLayout) {
-        this.refreshLayout = refreshLayout;
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setRefreshLayout(refreshLayout);
+        }
         return this;
     }
 
@@ -80,7 +140,21 @@ public class Connector {
      * Set listener which will give result and error of your API Calls.
      */
     public Connector setListener(@NonNull ConnectListener listener) {
-        this.connectListener = listener;
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setListener(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Set executor on which listeners are called, e.g. a background executor inside WorkManager workers.
+     * By default listeners are called on the thread which delivers the response, the main thread for Retrofit on Android.
+     * Note: To avoid a hop through the main thread, also create the client with {@link ClientConfig#setCallbackExecutor(Executor)}.
+     */
+    public Connector setCallbackExecutor(@Nullable Executor executor) {
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setCallbackExecutor(executor);
+        }
         return this;
     }
 
@@ -88,7 +162,151 @@ public class Connector {
      * Set listener which will show download progress.
      */
     public Connector setProgressListener(@NonNull ProgressListener listener) {
-        this.progressListener = listener;
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setProgressListener(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Set caching of GET requests in the memory cache of {@link ResponseCache}, default is {@link CacheMode#none}.
+     * To add a disk tier which revalidates with ETag / Last-Modified, set a cache in {@link ClientRegistry#setCache}.
+     * <p>
+     * The cache is shared by the whole app and keyed by method, URL and the Accept, Accept-Language, Authorization
+     * and Cookie headers of the Retrofit request. Credentials added later by an OkHttp interceptor or a CookieJar
+     * are not part of the key, so set them on the Retrofit request, set {@link #setAccountScope(String)},
+     * or clear the cache with {@link ResponseCache#clear()} when the account changes.
+     */
+    public Connector setCacheMode(@NonNull CacheMode cacheMode) {
+        this.cacheMode = cacheMode;
+        return this;
+    }
+
+    /**
+     * Set scope of cached and coalesced responses, e.g. the id of the signed in account, so responses of one scope are
+     * never served to another. Default is null, which keys responses by the request only.
+     */
+    public Connector setAccountScope(@Nullable String scope) {
+        this.accountScope = scope;
+        return this;
+    }
+
+    /**
+     * Enable sharing of identical in-flight GET / HEAD requests, which are then served by a single network call.
+     * A shared call is cancelled through {@link #cancelCall(Call)} only when every subscriber has cancelled it.
+     * <p>
+     * Requests are shared by method, URL and the Accept, Accept-Language, Authorization and Cookie headers of the
+     * Retrofit request. Credentials added by an OkHttp interceptor or a CookieJar are not seen, so set them on the
+     * Retrofit request, e.g. with {@code @Header}, or set {@link #setAccountScope(String)}.
+     */
+    public Connector setCoalescing(boolean enable) {
+        this.coalescing = enable;
+        return this;
+    }
+
+    /**
+     * Hold requests issued while offline in the {@link OfflineQueue} and replay them once the network comes back,
+     * instead of failing them with {@link ErrorCode#internetFailure}. A held request is cancelled like a queued one,
+     * and it is cancelled instead of replayed once its lifecycle owner is destroyed.
+     */
+    public Connector setOfflineQueue(boolean enable) {
+        this.offlineQueue = enable;
+        return this;
+    }
+
+    /**
+     * Set default {@link RetryPolicy} of requests, pass null to disable retries. Disabled by default.
+     * Note: Retried requests are not coalesced, to retry every request of a client use {@link ClientConfig#setRetryPolicy(RetryPolicy)}.
+     */
+    public Connector setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setRetryPolicy(retryPolicy);
+        }
+        return this;
+    }
+
+    /**
+     * Enable resumable downloads, an interrupted download continues from its partial file on next attempt.
+     * Large files are fetched in parallel segments when the server supports ranges.
+     * Note: Resumable downloads are executed by the shared client of {@link ClientRegistry}.
+     */
+    public Connector setResumable(boolean enable) {
+        this.resumable = enable;
+        return this;
+    }
+
+    /**
+     * Keep downloads in the shared {@link DownloadStore}, one file per URL which is revalidated with its ETag or
+     * Last-Modified instead of being transferred again. Disabled by default, every download is saved to a new file.
+     */
+    public Connector setDownloadStore(boolean enable) {
+        this.downloadStore = enable;
+        return this;
+    }
+
+    /**
+     * Set maximum number of parallel segments of a resumable download, default is 4.
+     * Fewer are used on a slow network, see {@link NetworkQualityEstimator}.
+     */
+    public Connector setDownloadSegments(int segments) {
+        this.downloadSegments = segments;
+        return this;
+    }
+
+    /**
+     * Set when downloaded files are synced to the storage device, default is {@link FsyncPolicy#none}.
+     */
+    public Connector setFsyncPolicy(@NonNull FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    /**
+     * Set priority of downloads in the shared {@link DownloadScheduler}, default is {@link Priority#normal}.
+     * Downloads can be paused, resumed and cancelled by TAG through the scheduler.
+     */
+    public Connector setDownloadPriority(@NonNull Priority priority) {
+        this.downloadPriority = priority;
+        return this;
+    }
+
+    /**
+     * Set lane of requests in the shared {@link RequestScheduler}, default is {@link Lane#normal}.
+     * Use {@link Lane#interactive} for calls the user is waiting on and {@link Lane#background} for prefetch or analytics.
+     */
+    public Connector setLane(@NonNull Lane lane) {
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setLane(lane);
+        }
+        return this;
+    }
+
+    /**
+     * Group requests by a lifecycle owner, so they can be cancelled with {@link #cancelAll(LifecycleOwner)}.
+     *
+     * @param cancelOnDestroy cancel queued and running requests of the owner automatically when it is destroyed.
+     */
+    public Connector setLifecycleOwner(@Nullable LifecycleOwner owner, boolean cancelOnDestroy) {
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setLifecycleOwner(owner, cancelOnDestroy);
+        }
+        return this;
+    }
+
+    /**
+     * Set size of the chunks of resumable uploads, default is 5 MB.
+     */
+    public Connector setUploadChunkSize(long bytes) {
+        this.uploadChunkSize = bytes;
+        return this;
+    }
+
+    /**
+     * Set maximum number of chunks of a resumable upload sent in parallel, default is 3.
+     * Fewer are sent on a slow network, see {@link NetworkQualityEstimator}.
+     */
+    public Connector setUploadParallelism(int parallelism) {
+        this.uploadParallelism = parallelism;
         return this;
     }
 
@@ -96,7 +314,9 @@ public class Connector {
      * Set a custom loader dialog (Optional), which will be automatically handled.
      */
     public Connector setLoader(@Nullable Dialog loaderDialog) {
-        this.loader = loaderDialog;
+        synchronized (this) {
+            defaults = new RequestOptions(defaults).setLoader(loaderDialog);
+        }
         return this;
     }
 
@@ -105,18 +325,83 @@ public class Connector {
      * Note: You can create your own custom RETROFIT CLIENT.
      */
     public static Retrofit createClient(String baseUrl) {
-        return new Retrofit.Builder()
-                .baseUrl(baseUrl)
-                .client(new OkHttpClient.Builder()
-                        .connectTimeout(1, TimeUnit.MINUTES)
-                        .writeTimeout(1, TimeUnit.MINUTES)
-                        .readTimeout(1, TimeUnit.MINUTES)
-                        .build())
-                .addConverterFactory(ScalarsConverterFactory.create())
-                .build();
-    }
-
-    private void loader(boolean loading) {
+        return createClient(baseUrl, new ClientConfig());
+    }
+
+    /**
+     * This method can be used to create a RETROFIT CLIENT using a BASE URL and a custom configuration.
+     * Clients are shared through {@link ClientRegistry}, so they reuse one connection pool, dispatcher and cache.
+     */
+    public static Retrofit createClient(@NonNull String baseUrl, @NonNull ClientConfig config) {
+        return ClientRegistry.getClient(baseUrl, config);
+    }
+
+    /**
+     * This method can be used to open connections to the BASE URLs in the background at startup,
+     * so the first requests skip DNS, TCP and TLS. See {@link ClientRegistry#prewarm(List)}.
+     */
+    public static void prewarm(@NonNull String... baseUrls) {
+        ClientRegistry.prewarm(Arrays.asList(baseUrls));
+    }
+
+    /**
+     * This method can be used to get the quality class of the current network, estimated from RTT and throughput
+     * of recent traffic. See {@link NetworkQualityEstimator} for the measured values.
+     */
+    @NonNull
+    public static NetworkQuality getNetworkQuality() {
+        return NetworkQualityEstimator.get().getQuality();
+    }
+
+    /**
+     * This method can be used to get hit and miss counters of the in-process DNS cache of the shared client.
+     */
+    @NonNull
+    public static DnsStats getDnsStats() {
+        return ClientRegistry.getDnsStats();
+    }
+
+    /**
+     * This method can be used to get latency percentiles of DNS, connect, TLS, first byte, transfer and dispatch per TAG.
+     * Use {@link MetricsSnapshot#toJson()} to export them.
+     * Note: Only calls made through clients of {@link ClientRegistry} are measured.
+     */
+    @NonNull
+    public static MetricsSnapshot getMetrics() {
+        return ConnectorMetrics.snapshot();
+    }
+
+    /**
+     * This method can be used to get compression ratio and time of gzip bodies per TAG,
+     * to decide per endpoint whether compression is worth it.
+     */
+    @NonNull
+    public static Map<String, CompressionStats> getCompressionStats() {
+        return ClientRegistry.getCompressionStats();
+    }
+
+    /**
+     * This method can be used to clear recorded latency, compression and DNS metrics.
+     */
+    public static void resetMetrics() {
+        ConnectorMetrics.reset();
+        ClientRegistry.resetCompressionStats();
+        ClientRegistry.resetDnsStats();
+    }
+
+    /**
+     * Loader and refresh layout are handled only when a UI is attached, always on the main thread.
+     */
+    private static void loader(@NonNull final RequestOptions options, final boolean loading) {
+        Dialog loader = options.getLoader();
+        SwipeRefreshLayout refreshLayout = options.getRefreshLayout();
+        if (loader == null && refreshLayout == null) {
+            return;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            MainThreadExecutor.get().execute(() -> loader(options, loading));
+            return;
+        }
         if (loading) {
             if (loader != null && !loader.isShowing()) {
                 loader.show();
@@ -131,18 +416,117 @@ public class Connector {
         }
     }
 
-    private void checkLog(String TAG, Object data) {
-        if (enableDebug) {
-            Log.d(TAG + ">>", data.toString());
+    /**
+     * Options of a call, the defaults of the connector are used as they are when the call has none.
+     */
+    private RequestOptions resolve(@Nullable RequestOptions options) {
+        RequestOptions defaults = this.defaults;
+        return options != null ? options.withDefaults(defaults) : defaults;
+    }
+
+    private static void finish(@Nullable Runnable onDone) {
+        if (onDone != null) {
+            onDone.run();
+        }
+    }
+
+    private void checkLog(String TAG, String message) {
+        if (tracer.isEnabled()) {
+            tracer.trace(TAG, message);
+        }
+    }
+
+    /**
+     * Listener which is called on the callback executor, when one is set.
+     */
+    private static ConnectListener dispatching(final ConnectListener listener, @Nullable final Executor executor) {
+        if (executor == null) {
+            return listener;
+        }
+        return new ConnectListener() {
+            @Override
+            public void onResult(int statusCode, @Nullable String data, @Nullable String message) {
+                executor.execute(() -> listener.onResult(statusCode, data, message));
+            }
+
+            @Override
+            public void onError(@NonNull ErrorCode code) {
+                executor.execute(() -> listener.onError(code));
+            }
+        };
+    }
+
+    private static <T> TypedListener<T> dispatching(@NonNull final TypedListener<T> listener, @Nullable final Executor executor) {
+        if (executor == null) {
+            return listener;
+        }
+        return new TypedListener<T>() {
+            @Override
+            public void onResult(int statusCode, @Nullable T data, @Nullable String message) {
+                executor.execute(() -> listener.onResult(statusCode, data, message));
+            }
+
+            @Override
+            public void onError(@NonNull ErrorCode code) {
+                executor.execute(() -> listener.onError(code));
+            }
+        };
+    }
+
+    private static BatchListener dispatching(@NonNull final BatchListener listener, @Nullable final Executor executor) {
+        if (executor == null) {
+            return listener;
+        }
+        return new BatchListener() {
+            @Override
+            public void onResult(@NonNull BatchResult result) {
+                executor.execute(() -> listener.onResult(result));
+            }
+
+            @Override
+            public void onComplete(@NonNull List<BatchResult> results, boolean failed) {
+                executor.execute(() -> listener.onComplete(results, failed));
+            }
+        };
+    }
+
+    /**
+     * Listener which completes the future on the thread which receives the result.
+     */
+    private static ConnectListener completing(@NonNull final ConnectFuture<ConnectResult> future) {
+        return new ConnectListener() {
+            @Override
+            public void onResult(int statusCode, @Nullable String data, @Nullable String message) {
+                future.complete(new ConnectResult(statusCode, data, message));
+            }
+
+            @Override
+            public void onError(@NonNull ErrorCode code) {
+                future.complete(new ConnectResult(code));
+            }
+        };
+    }
+
+    private static void checkBackgroundThread() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("Blocking calls must not be made on the main thread");
         }
     }
 
-    private Callback<String> createCallback(@NonNull final String TAG) {
+    /**
+     * @param cacheKey   key of the memory cache to store a successful response, null when caching is disabled.
+     * @param cachedBody body already delivered from the cache, the listener is only called again if the response differs.
+     * @param onDone     called once the request is finished.
+     */
+    private Callback<String> createCallback(@NonNull final String TAG, @NonNull final RequestOptions options, @NonNull final ConnectListener listener,
+                                            @Nullable final String cacheKey, @Nullable final String cachedBody, @Nullable final Runnable onDone) {
         return new Callback<String>() {
             @Override
             public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
+                ConnectorMetrics.dispatched(call.request());
                 checkLog(TAG, "Status Code: " + response.code());
-                loader(false);
+                loader(options, false);
+                finish(onDone);
 
                 try {
                     String json;
@@ -151,24 +535,87 @@ public class Connector {
                     } else {
                         json = response.errorBody().string();
                     }
-                    checkLog(TAG, "Response: " + json);
-                    connectListener.onResult(response.code(), json, response.message());
+                    tracer.trace(TAG, "Response: ", json);
+
+                    if (cachedBody != null && !response.isSuccessful()) {
+                        // Keep the age of the stale entry, an error does not confirm it.
+                        checkLog(TAG, "Cache Revalidation Failure: " + response.code());
+                        return;
+                    }
+                    if (cachedBody != null && cachedBody.equals(json)) {
+                        checkLog(TAG, "Cache Revalidated");
+                        ResponseCache.get().touch(cacheKey);
+                        return;
+                    }
+                    if (cacheKey != null && response.isSuccessful() && json != null && !"*".equals(response.headers().get("Vary"))) {
+                        ResponseCache.get().put(cacheKey, response.code(), json, response.message(), response.raw().cacheControl());
+                    }
+                    listener.onResult(response.code(), json, response.message());
                 } catch (Exception e) {
                     checkLog(TAG, "Error: " + e.getMessage());
-                    connectListener.onError(ErrorCode.errorSomething);
+                    if (cachedBody == null) {
+                        listener.onError(ErrorCode.errorSomething);
+                    }
                 }
             }
 
             @Override
             public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
-                loader(false);
+                loader(options, false);
+                finish(onDone);
 
-                if (!call.isCanceled()) {
+                if (cachedBody != null) {
+                    checkLog(TAG, "Cache Revalidation Failure");
+                } else if (t instanceof CircuitBreaker.OpenException) {
+                    checkLog(TAG, "Circuit Open: " + call.request().url().host());
+                    listener.onError(ErrorCode.circuitOpen);
+                } else if (!call.isCanceled()) {
                     checkLog(TAG, "Request Failure");
-                    connectListener.onError(ErrorCode.requestFailure);
+                    listener.onError(ErrorCode.requestFailure);
+                } else {
+                    checkLog(TAG, "Request Cancelled");
+                    listener.onError(ErrorCode.requestCancel);
+                }
+            }
+        };
+    }
+
+    private <T> Callback<T> createTypedCallback(@NonNull final String TAG, @NonNull final RequestOptions options, @NonNull final TypedListener<T> listener) {
+        return new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                ConnectorMetrics.dispatched(call.request());
+                checkLog(TAG, "Status Code: " + response.code());
+                loader(options, false);
+
+                try {
+                    if (response.isSuccessful()) {
+                        listener.onResult(response.code(), response.body(), response.message());
+                    } else {
+                        ResponseBody errorBody = response.errorBody();
+                        String error = errorBody != null ? errorBody.string() : null;
+                        tracer.trace(TAG, "Response: ", error);
+                        listener.onResult(response.code(), null, error != null && !error.isEmpty() ? error : response.message());
+                    }
+                } catch (Exception e) {
+                    checkLog(TAG, "Error: " + e.getMessage());
+                    listener.onError(ErrorCode.errorSomething);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                loader(options, false);
+
+                if (t instanceof CircuitBreaker.OpenException) {
+                    checkLog(TAG, "Circuit Open: " + call.request().url().host());
+                    listener.onError(ErrorCode.circuitOpen);
+                } else if (!call.isCanceled()) {
+                    checkLog(TAG, "Request Failure: " + t.getMessage());
+                    listener.onError(ErrorCode.requestFailure);
                 } else {
                     checkLog(TAG, "Request Cancelled");
-                    connectListener.onError(ErrorCode.requestCancel);
+                    listener.onError(ErrorCode.requestCancel);
                 }
             }
         };
@@ -178,105 +625,735 @@ public class Connector {
      * This method can be used to request an API such as GET/POST/PUT/DELETE/UPLOAD.
      */
     public void request(@NonNull final String TAG, @NonNull final Call<String> connect) {
+        RequestOptions options = resolve(null);
+        enqueueRequest(TAG, connect, options, dispatching(options.getListener(), options.getCallbackExecutor()), null);
+    }
+
+    /**
+     * This method can be used to request an API with its own {@link RetryPolicy}, pass null to disable retries of this call.
+     */
+    public void request(@NonNull final String TAG, @NonNull final Call<String> connect, @Nullable final RetryPolicy policy) {
+        request(TAG, connect, new RequestOptions().setRetryPolicy(policy));
+    }
+
+    /**
+     * This method can be used to request an API with its own listener and UI bindings, e.g. from a shared Connector.
+     */
+    public void request(@NonNull final String TAG, @NonNull final Call<String> connect, @NonNull final RequestOptions requestOptions) {
+        RequestOptions options = resolve(requestOptions);
+        enqueueRequest(TAG, connect, options, dispatching(options.getListener(), options.getCallbackExecutor()), null);
+    }
+
+    /**
+     * This method can be used to request an API from a background worker, cancelling the future cancels the call.
+     * The future is completed on the thread which delivers the response, the main thread unless the client was
+     * created with {@link ClientConfig#setCallbackExecutor(Executor)}.
+     */
+    @NonNull
+    public ConnectFuture<ConnectResult> requestAsync(@NonNull final String TAG, @NonNull final Call<String> connect) {
+        ConnectFuture<ConnectResult> future = new ConnectFuture<>();
+        future.setOnCancel(() -> cancelCall(connect));
+        enqueueRequest(TAG, connect, resolve(null), completing(future), null);
+        return future;
+    }
+
+    /**
+     * This method can be used to request an API and wait for its result, it must not be called on the main thread.
+     */
+    @NonNull
+    public ConnectResult execute(@NonNull final String TAG, @NonNull final Call<String> connect) throws InterruptedException {
+        checkBackgroundThread();
+        ConnectFuture<ConnectResult> future = requestAsync(TAG, connect);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * @param onDone called once the request is finished, used to replay requests of the {@link OfflineQueue}.
+     */
+    private void enqueueRequest(@NonNull final String TAG, @NonNull final Call<String> connect, @NonNull final RequestOptions options,
+                                @NonNull final ConnectListener listener, @Nullable final Runnable onDone) {
+        Request request = connect.request();
+        CacheMode cacheMode = this.cacheMode;
+        String cacheKey = null;
+        ResponseCache.Entry cached = null;
+        if (cacheMode != CacheMode.none && "GET".equals(request.method()) && !request.cacheControl().noCache()) {
+            // Keyed like the coalescer, credentials which are not on the request are covered by the account scope.
+            cacheKey = RequestCoalescer.key(request, accountScope);
+            cached = ResponseCache.get().get(cacheKey);
+        }
+        if (cached != null && (cached.isFresh() || cacheMode == CacheMode.staleWhileRevalidate)) {
+            checkLog(TAG, "Cache Hit: " + request.url());
+            loader(options, false);
+            listener.onResult(cached.getStatusCode(), cached.getBody(), cached.getMessage());
+            if (cached.isFresh()) {
+                finish(onDone);
+                return;
+            }
+        } else {
+            cached = null;
+        }
+
+        if (!Connectivity.isInternetAvailable(context)) {
+            loader(options, false);
+            if (cached != null) {
+                finish(onDone);
+            } else if (offlineQueue && hold(new HeldCall(TAG, connect, options, listener))) {
+                checkLog(TAG, "Queued Offline: " + request.url());
+                finish(onDone);
+            } else {
+                finish(onDone);
+                listener.onError(ErrorCode.internetFailure);
+            }
+            return;
+        }
+        if (cached == null) {
+            loader(options, true);
+        }
+
+        tracer.traceRequest(TAG, request);
+        ConnectorMetrics.tag(request, TAG);
+        Callback<String> callback = createCallback(TAG, options, listener, cacheKey, cached != null ? cached.getBody() : null, onDone);
+        RetryPolicy policy = options.getRetryPolicy();
+        schedule(new ScheduledCall<>(TAG, options, connect, callback, policy, policy == null && coalescing));
+    }
+
+    private boolean hold(@NonNull HeldCall call) {
+        held.put(call.connect, call);
+        if (OfflineQueue.get(context).enqueue(call)) {
+            return true;
+        }
+        held.remove(call.connect, call);
+        return false;
+    }
+
+    /**
+     * A request held by the {@link OfflineQueue}, registered by its call so it can be cancelled with {@link #cancelCall(Call)}
+     * before the network comes back.
+     */
+    private class HeldCall extends OfflineQueue.Replay {
+        private final String TAG;
+        private final Call<String> connect;
+        private final RequestOptions options;
+        private final ConnectListener listener;
+
+        HeldCall(@NonNull String TAG, @NonNull Call<String> connect, @NonNull RequestOptions options, @NonNull ConnectListener listener) {
+            super(TAG, options.getLifecycleOwner(), options.isCancelOnDestroy());
+            this.TAG = TAG;
+            this.connect = connect;
+            this.options = options;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void run(@NonNull Runnable onDone) {
+            held.remove(connect, this);
+            enqueueRequest(TAG, connect, options, listener, onDone);
+        }
+
+        @Override
+        protected void cancel() {
+            held.remove(connect, this);
+            connect.cancel();
+            checkLog(TAG, "Request Cancelled");
+            listener.onError(ErrorCode.requestCancel);
+        }
+    }
+
+    private void schedule(@NonNull ScheduledCall<?> call) {
+        scheduled.put(call.connect, call);
+        RequestScheduler.get().enqueue(call);
+    }
+
+    /**
+     * A call in flight, registered by its call until the callback runs, so a shared connector never crosses callbacks.
+     * It waits for its lane in the {@link RequestScheduler} and releases the slot before the callback runs.
+     * A call with a {@link RetryPolicy} runs through a {@link RetryCall} which can be cancelled with {@link #cancelCall(Call)}.
+     */
+    private class ScheduledCall<T> extends RequestScheduler.Job implements Callback<T> {
+        private final Call<T> connect;
+        private final Callback<T> callback;
+        private final RetryPolicy policy;
+        private final boolean coalesce;
+        private final String scope = accountScope;
+        private volatile RetryCall<T> retry;
+
+        ScheduledCall(@NonNull String TAG, @NonNull RequestOptions options, @NonNull Call<T> connect, @NonNull Callback<T> callback,
+                      @Nullable RetryPolicy policy, boolean coalesce) {
+            super(TAG, options.getLane(), options.getLifecycleOwner(), options.isCancelOnDestroy());
+            this.connect = connect;
+            this.callback = callback;
+            this.policy = policy;
+            this.coalesce = coalesce;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void start() {
+            if (policy != null) {
+                retry = new RetryCall<>(connect, policy, getTag(), this);
+                retry.enqueue();
+            } else if (coalesce) {
+                RequestCoalescer.get().enqueue((Call<String>) connect, (Callback<String>) this, scope);
+            } else {
+                connect.enqueue(this);
+            }
+        }
+
+        @Override
+        protected void abort(boolean started) {
+            if (started) {
+                cancelCall(connect);
+            } else {
+                scheduled.remove(connect, this);
+                connect.cancel();
+                callback.onFailure(connect, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            scheduled.remove(connect, this);
+            RequestScheduler.get().finished(this);
+            callback.onResponse(call, response);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            scheduled.remove(connect, this);
+            RequestScheduler.get().finished(this);
+            callback.onFailure(call, t);
+        }
+    }
+
+    /**
+     * This method can be used to run a batch of independent API calls with a limited concurrency.
+     * Loader and refresh layout are handled once for the whole batch and the listener receives
+     * per-call results followed by one aggregate completion.
+     */
+    public void batch(@NonNull final String TAG, @NonNull final List<Call<String>> calls, int maxConcurrent,
+                      @NonNull BatchMode mode, @NonNull final BatchListener listener) {
+        batch(TAG, calls, maxConcurrent, mode, listener, new RequestOptions());
+    }
+
+    /**
+     * This method can be used to run a batch with its own UI bindings, lane and lifecycle owner.
+     */
+    public void batch(@NonNull final String TAG, @NonNull final List<Call<String>> calls, int maxConcurrent,
+                      @NonNull BatchMode mode, @NonNull final BatchListener listener, @NonNull final RequestOptions requestOptions) {
+        RequestOptions options = resolve(requestOptions);
+        new BatchRun(TAG, options, calls, Math.max(1, maxConcurrent), mode, dispatching(listener, options.getCallbackExecutor())).start();
+    }
+
+    /**
+     * Runs the calls of a batch, its state is guarded by the run itself because callbacks of the calls
+     * can arrive on any thread, e.g. with a callback executor or when a queued call is aborted.
+     */
+    private class BatchRun {
+
+        private final String TAG;
+        private final RequestOptions options;
+        private final List<Call<String>> calls;
+        private final int maxConcurrent;
+        private final BatchMode mode;
+        private final BatchListener listener;
+        private final boolean coalesce;
+        private final BatchResult[] results;
+        private int next;
+        private int running;
+        private int finished;
+        private boolean failed;
+        private boolean completed;
+
+        BatchRun(String TAG, RequestOptions options, List<Call<String>> calls, int maxConcurrent, BatchMode mode, BatchListener listener) {
+            this.TAG = TAG;
+            this.options = options;
+            this.calls = new ArrayList<>(calls);
+            this.maxConcurrent = maxConcurrent;
+            this.mode = mode;
+            this.listener = listener;
+            this.coalesce = coalescing;
+            this.results = new BatchResult[calls.size()];
+        }
+
+        synchronized void start() {
+            checkLog(TAG, "Batch: " + calls.size() + " calls");
+            if (!Connectivity.isInternetAvailable(context)) {
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = new BatchResult(i, ErrorCode.internetFailure);
+                }
+                failed = !calls.isEmpty();
+                complete();
+                return;
+            }
+            loader(options, true);
+            launch();
+        }
+
+        private synchronized void launch() {
+            if (finished == calls.size()) {
+                complete();
+                return;
+            }
+            while (!completed && running < maxConcurrent && next < calls.size()) {
+                final int index = next++;
+                running++;
+                Callback<String> callback = new Callback<String>() {
+                    @Override
+                    public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
+                        try {
+                            String json = response.isSuccessful() ? response.body() : response.errorBody().string();
+                            onFinished(new BatchResult(index, response.code(), json, response.message()));
+                        } catch (Exception e) {
+                            checkLog(TAG, "Error: " + e.getMessage());
+                            onFinished(new BatchResult(index, ErrorCode.errorSomething));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
+                        onFinished(new BatchResult(index, call.isCanceled() ? ErrorCode.requestCancel
+                                : t instanceof CircuitBreaker.OpenException ? ErrorCode.circuitOpen : ErrorCode.requestFailure));
+                    }
+                };
+                ConnectorMetrics.tag(calls.get(index).request(), TAG);
+                schedule(new ScheduledCall<>(TAG, options, calls.get(index), callback, null, coalesce));
+            }
+        }
+
+        private synchronized void onFinished(BatchResult result) {
+            running--;
+            if (completed) {
+                return;
+            }
+            checkLog(TAG, "Batch Result " + result.getIndex() + ": " + result.getStatusCode());
+            results[result.getIndex()] = result;
+            finished++;
+            listener.onResult(result);
+
+            if (!result.isSuccessful()) {
+                failed = true;
+                if (mode == BatchMode.failFast) {
+                    failFast();
+                    return;
+                }
+            }
+            launch();
+        }
+
+        /**
+         * Complete the batch before cancelling the remaining calls, so their callbacks are ignored.
+         */
+        private void failFast() {
+            List<Call<String>> remaining = new ArrayList<>();
+            for (int i = 0; i < calls.size(); i++) {
+                if (results[i] == null) {
+                    results[i] = new BatchResult(i, ErrorCode.requestCancel);
+                    remaining.add(calls.get(i));
+                }
+            }
+            complete();
+            for (Call<String> call : remaining) {
+                cancelCall(call);
+            }
+        }
+
+        private synchronized void complete() {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            loader(options, false);
+            checkLog(TAG, "Batch Completed" + (failed ? " with failures" : ""));
+            listener.onComplete(new ArrayList<>(Arrays.asList(results)), failed);
+        }
+    }
+
+    /**
+     * This method can be used to request an API with a typed response, e.g. {@code Call<User>}.
+     * Binary payloads can be requested as {@code Call<ByteString>} or {@code Call<Buffer>} without any charset decoding,
+     * see {@link BinaryConverterFactory}.
+     * The response is deserialized from the stream on a background thread and only the result reaches the listener.
+     */
+    public <T> void request(@NonNull final String TAG, @NonNull final Call<T> connect, @NonNull final TypedListener<T> typedListener) {
+        enqueueTyped(TAG, connect, typedListener, resolve(null));
+    }
+
+    /**
+     * This method can be used to request an API with a typed response and its own UI bindings, e.g. from a shared Connector.
+     * The listener of the options is not used, the typed listener receives the result.
+     */
+    public <T> void request(@NonNull final String TAG, @NonNull final Call<T> connect, @NonNull final TypedListener<T> typedListener,
+                            @NonNull final RequestOptions requestOptions) {
+        enqueueTyped(TAG, connect, typedListener, resolve(requestOptions));
+    }
+
+    private <T> void enqueueTyped(@NonNull final String TAG, @NonNull final Call<T> connect, @NonNull final TypedListener<T> typedListener,
+                                  @NonNull final RequestOptions options) {
+        final TypedListener<T> listener = dispatching(typedListener, options.getCallbackExecutor());
         if (!Connectivity.isInternetAvailable(context)) {
-            loader(false);
-            connectListener.onError(ErrorCode.internetFailure);
+            loader(options, false);
+            listener.onError(ErrorCode.internetFailure);
             return;
         }
-        loader(true);
+        loader(options, true);
 
         Request request = connect.request();
-        RequestBody body = request.body();
-        checkLog(TAG, "URL: " + request.url());
-        checkLog(TAG, "Params: " + (body != null ? createParams(body) : "Empty"));
-        connect.enqueue(createCallback(TAG));
+        tracer.traceRequest(TAG, request);
+        ConnectorMetrics.tag(request, TAG);
+        schedule(new ScheduledCall<>(TAG, options, connect, createTypedCallback(TAG, options, listener), options.getRetryPolicy(), false));
     }
 
     /**
      * This method can be used to download file as per a specific request of an API.
      */
     public void download(@NonNull final String TAG, @NonNull final Call<ResponseBody> connect) {
+        RequestOptions options = resolve(null);
+        enqueueDownload(TAG, connect, options, dispatching(options.getListener(), options.getCallbackExecutor()));
+    }
+
+    /**
+     * This method can be used to download a file with its own listener, progress listener and UI bindings.
+     */
+    public void download(@NonNull final String TAG, @NonNull final Call<ResponseBody> connect, @NonNull final RequestOptions requestOptions) {
+        RequestOptions options = resolve(requestOptions);
+        enqueueDownload(TAG, connect, options, dispatching(options.getListener(), options.getCallbackExecutor()));
+    }
+
+    /**
+     * This method can be used to download a file from a background worker, cancelling the future cancels the download.
+     * The future is completed with the file path on the callback executor of {@link DownloadScheduler}, the main thread
+     * unless it was changed with {@link DownloadScheduler#setCallbackExecutor(Executor)}. Progress is always reported
+     * on the main thread.
+     */
+    @NonNull
+    public ConnectFuture<ConnectResult> downloadAsync(@NonNull final String TAG, @NonNull final Call<ResponseBody> connect) {
+        ConnectFuture<ConnectResult> future = new ConnectFuture<>();
+        future.setOnCancel(() -> cancelCall(connect));
+        enqueueDownload(TAG, connect, resolve(null), completing(future));
+        return future;
+    }
+
+    /**
+     * This method can be used to download a file and wait for its path, it must not be called on the main thread.
+     */
+    @NonNull
+    public ConnectResult executeDownload(@NonNull final String TAG, @NonNull final Call<ResponseBody> connect) throws InterruptedException {
+        checkBackgroundThread();
+        ConnectFuture<ConnectResult> future = downloadAsync(TAG, connect);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private void enqueueDownload(@NonNull final String TAG, @NonNull final Call<ResponseBody> connect, @NonNull final RequestOptions options,
+                                 @NonNull final ConnectListener listener) {
         if (!Connectivity.isInternetAvailable(context)) {
-            connectListener.onError(ErrorCode.internetFailure);
+            listener.onError(ErrorCode.internetFailure);
             return;
         }
-        loader(true);
+        loader(options, true);
 
         Request request = connect.request();
-        RequestBody body = request.body();
-        checkLog(TAG, "URL: " + request.url());
-        checkLog(TAG, "Params: " + (body != null ? createParams(body) : "Empty"));
+        tracer.traceRequest(TAG, request);
 
-        connect.enqueue(new Callback<ResponseBody>() {
-            @Override
-            public void onResponse(@NonNull Call<ResponseBody> call, @NonNull final Response<ResponseBody> response) {
-                checkLog(TAG, "Status Code: " + response.code());
+        DownloadTask task = new DownloadTask(TAG, connect, options, listener);
+        downloads.put(connect, task);
+        DownloadScheduler.get().enqueue(task);
+    }
 
-                if (response.isSuccessful() && response.body() != null) {
-                    checkLog(TAG, "File Found");
+    /**
+     * Download executed by the shared {@link DownloadScheduler}, either resumable or in a single stream.
+     */
+    private class DownloadTask extends DownloadScheduler.Task {
 
-                    final ExecutorService executorService = Executors.newSingleThreadExecutor();
-                    final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final String TAG;
+        private final Call<ResponseBody> connect;
+        private final RequestOptions options;
+        private final ConnectListener listener;
+        private final ProgressUpdater updater;
+        private volatile Call<ResponseBody> call;
+        private volatile DownloadEngine engine;
+        private ErrorCode errorCode;
+        private int statusCode;
+        private String message;
+        private String filePath;
 
-                    Future<String> backgroundProcess = executorService.submit(() -> {
-                        checkLog(TAG, "Background Process");
+        DownloadTask(@NonNull String TAG, @NonNull Call<ResponseBody> connect, @NonNull RequestOptions options, @NonNull ConnectListener listener) {
+            super(TAG, connect.request().url().host(), connect.request().url().toString(), downloadPriority);
+            this.TAG = TAG;
+            this.connect = connect;
+            this.options = options;
+            this.listener = listener;
+            this.updater = new ProgressUpdater(options.getProgressListener(), MainThreadExecutor.get());
+        }
 
-                        File file = createFile(context, request.url().toString());
-                        String filePath = Uri.fromFile(file).toString();
-                        checkLog(TAG, "File Path: " + filePath);
+        @Override
+        protected void execute() throws Exception {
+            checkLog(TAG, "Background Process");
+            errorCode = ErrorCode.downloadFailure;
+            DownloadStore store = downloadStore ? DownloadStore.get(context) : null;
+            DownloadStore.Entry stored = store != null ? store.get(getUrl()) : null;
+            if (stored != null && (stored.getValidator() == null || !store.verify(stored))) {
+                stored = null;
+            }
+            File file;
 
-                        boolean isFileSaved = writeToDisk(file, progressListener, response.body());
-                        return isFileSaved ? filePath : null;
-                    });
-                    executorService.execute(() -> {
-                        checkLog(TAG, "Foreground Process");
-                        loader(false);
-                        try {
-                            String filePath = backgroundProcess.get();
-                            mainHandler.post(() -> {
-                                if (filePath != null) {
-                                    connectListener.onResult(response.code(), filePath, response.message());
-                                } else {
-                                    connectListener.onError(ErrorCode.saveFailure);
-                                }
-                            });
-                        } catch (Exception e) {
-                            checkLog(TAG, "Error: " + e.getMessage());
-                            connectListener.onError(ErrorCode.errorSomething);
-                        } finally {
-                            executorService.shutdown();
+            if (resumable) {
+                Request request = connect.request();
+                if (stored != null) {
+                    request = DownloadStore.conditional(request.newBuilder(), stored.getValidator()).build();
+                }
+                engine = new DownloadEngine(ClientRegistry.getSharedClient(), request, createPartialFile(context, getUrl()))
+                        .setSegments(NetworkQualityEstimator.get().adjustParallelism(downloadSegments))
+                        .setFsyncPolicy(fsyncPolicy)
+                        .setProgressCallback(updater::update);
+                if (getState() != DownloadScheduler.State.running) {
+                    engine.cancel();
+                }
+                try {
+                    File download = engine.execute();
+                    if (store != null) {
+                        file = store.put(getUrl(), download, engine.getValidator()).getFile();
+                    } else {
+                        file = createFile(context, getUrl());
+                        if (!download.renameTo(file)) {
+                            throw new IOException("Unable to move download to " + file);
                         }
-                    });
+                    }
+                    message = "OK";
+                } catch (DownloadEngine.NotModifiedException e) {
+                    file = stored.getFile();
+                    message = "Not Modified";
+                }
+                statusCode = 200;
+            } else {
+                call = connect.isExecuted() ? connect.clone() : connect;
+                ConnectorMetrics.tag(call.request(), TAG);
+                if (stored != null) {
+                    DownloadStore.revalidate(call.request(), stored.getValidator());
+                }
+                if (getState() != DownloadScheduler.State.running) {
+                    call.cancel();
+                }
+                Response<ResponseBody> response = call.execute();
+                checkLog(TAG, "Status Code: " + response.code());
+                if (stored != null && response.code() == 304) {
+                    closeQuietly(response);
+                    file = stored.getFile();
+                    statusCode = 200;
+                    message = response.message();
                 } else {
-                    loader(false);
-                    connectListener.onError(ErrorCode.downloadFailure);
+                    if (!response.isSuccessful() || response.body() == null) {
+                        closeQuietly(response);
+                        throw new IOException("Unexpected response code " + response.code());
+                    }
+
+                    checkLog(TAG, "File Found");
+                    File target = store != null ? store.createTempFile(getUrl()) : createFile(context, getUrl());
+                    if (!writeToDisk(target, updater, fsyncPolicy, response.body())) {
+                        errorCode = ErrorCode.saveFailure;
+                        //noinspection ResultOfMethodCallIgnored
+                        target.delete();
+                        throw new IOException("Unable to save " + target);
+                    }
+                    file = store != null ? store.put(getUrl(), target, DownloadStore.validatorOf(response.raw())).getFile() : target;
+                    statusCode = response.code();
+                    message = response.message();
                 }
             }
 
-            @Override
-            public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable throwable) {
-                loader(false);
+            updater.complete();
+            filePath = Uri.fromFile(file).toString();
+            checkLog(TAG, "File Path: " + filePath);
+        }
 
-                if (!call.isCanceled()) {
-                    checkLog(TAG, "Request Failure: " + throwable.getMessage());
-                    connectListener.onError(ErrorCode.downloadFailure);
-                } else {
-                    checkLog(TAG, "Request Cancelled: " + throwable.getMessage());
-                    connectListener.onError(ErrorCode.requestCancel);
-                }
+        @Override
+        protected void abort() {
+            DownloadEngine engine = this.engine;
+            if (engine != null) {
+                engine.cancel();
+            }
+            Call<ResponseBody> call = this.call;
+            if (call != null) {
+                call.cancel();
             }
-        });
+        }
+
+        @Override
+        protected void onComplete(@Nullable Exception error) {
+            downloads.remove(connect, this);
+            loader(options, false);
+
+            if (error == null) {
+                listener.onResult(statusCode, filePath, message);
+            } else if (error instanceof CancellationException) {
+                checkLog(TAG, "Request Cancelled");
+                listener.onError(ErrorCode.requestCancel);
+            } else if (error instanceof CircuitBreaker.OpenException) {
+                checkLog(TAG, "Circuit Open: " + getHost());
+                listener.onError(ErrorCode.circuitOpen);
+            } else {
+                checkLog(TAG, "Error: " + error.getMessage());
+                listener.onError(errorCode);
+            }
+        }
     }
 
     /**
-     * This method can be used to cancel running request / download call
+     * This method can be used to upload a large file in chunks to a tus endpoint, e.g. a video.
+     * An interrupted upload continues from the acknowledged chunks on next attempt, even after the app was killed.
+     * The listener receives the URL of the uploaded file as data.
+     * Note: Uploads are executed by the shared client of {@link ClientRegistry} and scheduled with the downloads,
+     * so they can be paused, resumed and cancelled by TAG through {@link DownloadScheduler}.
+     *
+     * @param request creation request of the tus endpoint with the headers sent along every chunk, e.g. Authorization.
+     */
+    public void upload(@NonNull final String TAG, @NonNull final Request request, @NonNull final File file) {
+        upload(TAG, request, file, new RequestOptions());
+    }
+
+    /**
+     * This method can be used to upload a large file with its own listener, progress listener and UI bindings.
+     */
+    public void upload(@NonNull final String TAG, @NonNull final Request request, @NonNull final File file, @NonNull final RequestOptions requestOptions) {
+        RequestOptions options = resolve(requestOptions);
+        ConnectListener listener = dispatching(options.getListener(), options.getCallbackExecutor());
+        if (!Connectivity.isInternetAvailable(context)) {
+            listener.onError(ErrorCode.internetFailure);
+            return;
+        }
+        loader(options, true);
+        tracer.traceRequest(TAG, request);
+        DownloadScheduler.get().enqueue(new UploadTask(TAG, request, file, options, listener));
+    }
+
+    /**
+     * Resumable upload executed by the shared {@link DownloadScheduler}.
+     */
+    private class UploadTask extends DownloadScheduler.Task {
+
+        private final String TAG;
+        private final Request request;
+        private final File file;
+        private final RequestOptions options;
+        private final ConnectListener listener;
+        private final ProgressUpdater updater;
+        private volatile UploadEngine engine;
+        private String location;
+
+        UploadTask(@NonNull String TAG, @NonNull Request request, @NonNull File file, @NonNull RequestOptions options, @NonNull ConnectListener listener) {
+            super(TAG, request.url().host(), request.url().toString(), downloadPriority);
+            this.TAG = TAG;
+            this.request = request;
+            this.file = file;
+            this.options = options;
+            this.listener = listener;
+            this.updater = new ProgressUpdater(options.getProgressListener(), MainThreadExecutor.get());
+        }
+
+        @Override
+        protected void execute() throws Exception {
+            checkLog(TAG, "Background Process");
+            engine = new UploadEngine(ClientRegistry.getSharedClient(), request, file, createUploadStateFile(context, request, file))
+                    .setChunkSize(uploadChunkSize)
+                    .setParallelism(NetworkQualityEstimator.get().adjustParallelism(uploadParallelism))
+                    .setProgressCallback(updater::update);
+            if (getState() != DownloadScheduler.State.running) {
+                engine.cancel();
+            }
+            location = engine.execute();
+            updater.complete();
+            checkLog(TAG, "Upload Location: " + location);
+        }
+
+        @Override
+        protected void abort() {
+            UploadEngine engine = this.engine;
+            if (engine != null) {
+                engine.cancel();
+            }
+        }
+
+        @Override
+        protected void onComplete(@Nullable Exception error) {
+            loader(options, false);
+
+            if (error == null) {
+                listener.onResult(201, location, "Created");
+            } else if (error instanceof CancellationException) {
+                checkLog(TAG, "Request Cancelled");
+                listener.onError(ErrorCode.requestCancel);
+            } else {
+                checkLog(TAG, "Error: " + error.getMessage());
+                listener.onError(ErrorCode.requestFailure);
+            }
+        }
+    }
+
+    /**
+     * This method can be used to cancel queued or running request / download call
      */
     public void cancelCall(Call<?> call) {
+        HeldCall replay = call != null ? held.get(call) : null;
+        if (replay != null && OfflineQueue.get(context).cancel(replay)) {
+            return;
+        }
+        ScheduledCall<?> job = call != null ? scheduled.get(call) : null;
+        if (job != null) {
+            if (RequestScheduler.get().cancelQueued(job)) {
+                return;
+            }
+            RetryCall<?> retry = job.retry;
+            if (retry != null) {
+                retry.cancel();
+                return;
+            }
+        }
+        if (call != null && RequestCoalescer.get().cancel(call)) {
+            return;
+        }
+        DownloadTask task = call != null ? downloads.get(call) : null;
+        if (task != null) {
+            DownloadScheduler.get().cancel(task);
+            return;
+        }
         if (call != null && !call.isCanceled() && call.isExecuted()) {
             call.cancel();
         }
     }
 
+    /**
+     * This method can be used to cancel every queued, held offline and running request and download with the TAG.
+     */
+    public static void cancelAll(@NonNull String TAG) {
+        RequestScheduler.get().cancel(TAG);
+        DownloadScheduler.get().cancel(TAG);
+        OfflineQueue queue = OfflineQueue.peek();
+        if (queue != null) {
+            queue.cancel(TAG);
+        }
+    }
+
+    /**
+     * This method can be used to cancel every queued, held offline and running request of a lifecycle owner,
+     * see {@link #setLifecycleOwner(LifecycleOwner, boolean)} and {@link RequestOptions#setLifecycleOwner(LifecycleOwner, boolean)}.
+     */
+    public static void cancelAll(@NonNull LifecycleOwner owner) {
+        RequestScheduler.get().cancel(owner);
+        OfflineQueue queue = OfflineQueue.peek();
+        if (queue != null) {
+            queue.cancel(owner);
+        }
+    }
+
     /**
      * To generate empty file with specific extension using url
      */
@@ -286,15 +1363,26 @@ public class Connector {
     }
 
     /**
-     * To generate string params with using request body
+     * To generate a partial file which is named after the url, so that the same download can be resumed
      */
-    private static String createParams(@NonNull RequestBody body) {
-        try {
-            Buffer buffer = new Buffer();
-            body.writeTo(buffer);
-            return buffer.readUtf8().replace("&", " ");
-        } catch (Exception e) {
-            return "Unavailable";
+    private static File createPartialFile(@NonNull Context context, @NonNull String url) {
+        File directory = context.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS);
+        return new File(directory, ByteString.encodeUtf8(url).sha1().hex() + "." + MimeTypeMap.getFileExtensionFromUrl(url));
+    }
+
+    /**
+     * To generate the state file of a resumable upload which is named after the endpoint and file, kept in internal storage
+     */
+    private static File createUploadStateFile(@NonNull Context context, @NonNull Request request, @NonNull File file) {
+        File directory = new File(context.getFilesDir(), "uploads");
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+        return new File(directory, ByteString.encodeUtf8(request.url() + "\n" + file.getAbsolutePath()).sha1().hex() + ".upload");
+    }
+
+    private static void closeQuietly(Response<?> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
         }
     }
 
@@ -313,33 +1401,22 @@ public class Connector {
     /**
      * To save / write a file in your device and show its progress
      */
-    private static boolean writeToDisk(@NonNull File file, @Nullable ProgressListener progressListener, @NonNull ResponseBody body) {
-        boolean isWriteResponseBodyToDisk = false;
+    private static boolean writeToDisk(@NonNull File file, @NonNull ProgressUpdater updater, @NonNull FsyncPolicy fsyncPolicy, @NonNull ResponseBody body) {
+        final long fileLength = body.contentLength();
+        final AtomicLong downloaded = new AtomicLong();
         try {
-            byte[] fileReader = new byte[4096];
-            InputStream inputStream = body.byteStream();
-            long fileLength = body.contentLength();
-            long downloaded = 0;
-            OutputStream outputStream = new FileOutputStream(file, false);
-            Handler handler = new Handler(Looper.getMainLooper());
-            while (true) {
-                int read = inputStream.read(fileReader);
-                if (read == -1) {
-                    break;
-                }
-                outputStream.write(fileReader, 0, read);
-                downloaded = downloaded + read;
-                handler.post(new ProgressUpdater(downloaded, fileLength, progressListener));
-            }
-            outputStream.flush();
-            isWriteResponseBodyToDisk = true;
-
-            inputStream.close();
-            outputStream.close();
+            long start = System.nanoTime();
+            long written = new DiskWriter()
+                    .setFsyncPolicy(fsyncPolicy)
+                    .write(body.source(), file, 0, -1, fileLength, bytes -> updater.update(downloaded.addAndGet(bytes), fileLength));
+            NetworkQualityEstimator.get().recordDownstream(written, System.nanoTime() - start);
+            return fileLength < 0 || written == fileLength;
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
+        } finally {
+            body.close();
         }
-        return isWriteResponseBodyToDisk;
     }
 }
 
@@ -0,0 +1,18 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+public interface BatchListener {
+    /**
+     * Called for every call of the batch as soon as it is finished.
+     */
+    default void onResult(@NonNull BatchResult result) {
+    }
+
+    /**
+     * Called once when the whole batch is finished, results are ordered as the calls.
+     */
+    void onComplete(@NonNull List<BatchResult> results, boolean failed);
+}
@@ -0,0 +1,12 @@
+package atirek.pothiwala.connection.extensions;
+
+public enum BatchMode {
+    /**
+     * Stop at the first failed call, remaining calls are cancelled.
+     */
+    failFast,
+    /**
+     * Run every call and collect all results.
+     */
+    collectAll
+}
@@ -0,0 +1,62 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+public class BatchResult {
+
+    private final int index;
+    private final int statusCode;
+    private final String data;
+    private final String message;
+    private final ErrorCode errorCode;
+
+    public BatchResult(int index, int statusCode, @Nullable String data, @Nullable String message) {
+        this.index = index;
+        this.statusCode = statusCode;
+        this.data = data;
+        this.message = message;
+        this.errorCode = null;
+    }
+
+    public BatchResult(int index, @NonNull ErrorCode errorCode) {
+        this.index = index;
+        this.statusCode = 0;
+        this.data = null;
+        this.message = errorCode.message();
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Position of the call in the batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Nullable
+    public String getData() {
+        return data;
+    }
+
+    @Nullable
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Error of the call, null when a response has been received.
+     */
+    @Nullable
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public boolean isSuccessful() {
+        return errorCode == null && statusCode >= 200 && statusCode < 300;
+    }
+}
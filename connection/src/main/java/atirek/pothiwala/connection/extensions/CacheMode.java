@@ -0,0 +1,17 @@
+package atirek.pothiwala.connection.extensions;
+
+public enum CacheMode {
+    /**
+     * Always request the network, responses are not kept in memory.
+     */
+    none,
+    /**
+     * Serve a fresh response from memory without a network call, otherwise request the network.
+     */
+    cacheFirst,
+    /**
+     * Serve a cached response at once and revalidate it in background when it is stale,
+     * the listener is called again only if the revalidated response has changed.
+     */
+    staleWhileRevalidate
+}
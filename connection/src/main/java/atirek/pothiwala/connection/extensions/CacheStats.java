@@ -0,0 +1,67 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+public class CacheStats {
+
+    private final long memoryHits;
+    private final long memoryMisses;
+    private final long evictions;
+    private final long memorySize;
+    private final long diskHits;
+    private final long networkRequests;
+
+    public CacheStats(long memoryHits, long memoryMisses, long evictions, long memorySize, long diskHits, long networkRequests) {
+        this.memoryHits = memoryHits;
+        this.memoryMisses = memoryMisses;
+        this.evictions = evictions;
+        this.memorySize = memorySize;
+        this.diskHits = diskHits;
+        this.networkRequests = networkRequests;
+    }
+
+    public long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public long getMemoryMisses() {
+        return memoryMisses;
+    }
+
+    /**
+     * Number of responses removed from memory to stay within the maximum size.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Approximate size in bytes of responses held in memory.
+     */
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Responses served by the HTTP disk cache, including conditional hits revalidated with the server.
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Responses which went to the network as seen by the HTTP disk cache.
+     */
+    public long getNetworkRequests() {
+        return networkRequests;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "Memory: %d hits, %d misses, %d evictions, %d bytes; Disk: %d hits, %d network",
+                memoryHits, memoryMisses, evictions, memorySize, diskHits, networkRequests);
+    }
+}
@@ -0,0 +1,7 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+public interface CircuitListener {
+    void onStateChanged(@NonNull String host, @NonNull CircuitState from, @NonNull CircuitState to);
+}
@@ -0,0 +1,7 @@
+package atirek.pothiwala.connection.extensions;
+
+public enum CircuitState {
+    closed,
+    open,
+    halfOpen
+}
@@ -0,0 +1,91 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Compression of request and response bodies of one TAG, ratio is encoded size divided by original size.
+ */
+public class CompressionStats {
+
+    private final long requests;
+    private final long requestBytes;
+    private final long requestEncodedBytes;
+    private final long requestNanos;
+    private final long responses;
+    private final long responseBytes;
+    private final long responseEncodedBytes;
+    private final long responseNanos;
+
+    public CompressionStats(long requests, long requestBytes, long requestEncodedBytes, long requestNanos,
+                            long responses, long responseBytes, long responseEncodedBytes, long responseNanos) {
+        this.requests = requests;
+        this.requestBytes = requestBytes;
+        this.requestEncodedBytes = requestEncodedBytes;
+        this.requestNanos = requestNanos;
+        this.responses = responses;
+        this.responseBytes = responseBytes;
+        this.responseEncodedBytes = responseEncodedBytes;
+        this.responseNanos = responseNanos;
+    }
+
+    /**
+     * Number of compressed request bodies.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getRequestEncodedBytes() {
+        return requestEncodedBytes;
+    }
+
+    /**
+     * Time spent compressing request bodies.
+     */
+    public long getRequestMillis() {
+        return requestNanos / 1000000;
+    }
+
+    public double getRequestRatio() {
+        return requestBytes == 0 ? 1 : (double) requestEncodedBytes / requestBytes;
+    }
+
+    /**
+     * Number of decompressed response bodies.
+     */
+    public long getResponses() {
+        return responses;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public long getResponseEncodedBytes() {
+        return responseEncodedBytes;
+    }
+
+    /**
+     * Time spent decompressing response bodies, without the time waiting for the network.
+     */
+    public long getResponseMillis() {
+        return responseNanos / 1000000;
+    }
+
+    public double getResponseRatio() {
+        return responseBytes == 0 ? 1 : (double) responseEncodedBytes / responseBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "requests=%d ratio=%.2f time=%dms, responses=%d ratio=%.2f time=%dms",
+                requests, getRequestRatio(), getRequestMillis(), responses, getResponseRatio(), getResponseMillis());
+    }
+}
@@ -0,0 +1,130 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future of a Connector call, completed on the thread which receives the response.
+ * Errors are part of the result, so {@link #get()} only throws when the future is cancelled or interrupted.
+ */
+public class ConnectFuture<T> implements Future<T> {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    private T value;
+    private boolean done;
+    private boolean cancelled;
+    private Runnable onCancel;
+
+    /**
+     * Complete the future, ignored when it is already done.
+     *
+     * @return true if this call completed the future.
+     */
+    public boolean complete(@Nullable T value) {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.value = value;
+            this.done = true;
+            pending = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        latch.countDown();
+        for (Runnable listener : pending) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**
+     * Set the action which cancels the underlying call.
+     */
+    public void setOnCancel(@Nullable Runnable onCancel) {
+        synchronized (this) {
+            this.onCancel = onCancel;
+        }
+    }
+
+    /**
+     * Run the listener on the executor once the future is done, or right away if it already is.
+     */
+    public ConnectFuture<T> addListener(@NonNull final Runnable listener, @NonNull final Executor executor) {
+        Runnable task = () -> executor.execute(listener);
+        synchronized (this) {
+            if (!done) {
+                listeners.add(task);
+                return this;
+            }
+        }
+        task.run();
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        Runnable cancelAction;
+        List<Runnable> pending;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            cancelled = true;
+            cancelAction = onCancel;
+            pending = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        latch.countDown();
+        if (cancelAction != null) {
+            cancelAction.run();
+        }
+        for (Runnable listener : pending) {
+            listener.run();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public T get() throws InterruptedException {
+        latch.await();
+        return result();
+    }
+
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private synchronized T result() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return value;
+    }
+}
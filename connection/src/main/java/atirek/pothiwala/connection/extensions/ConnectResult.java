@@ -0,0 +1,58 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Outcome of a request or download returned by the future and blocking APIs of Connector.
+ */
+public class ConnectResult {
+
+    private final int statusCode;
+    private final String data;
+    private final String message;
+    private final ErrorCode errorCode;
+
+    public ConnectResult(int statusCode, @Nullable String data, @Nullable String message) {
+        this.statusCode = statusCode;
+        this.data = data;
+        this.message = message;
+        this.errorCode = null;
+    }
+
+    public ConnectResult(@NonNull ErrorCode errorCode) {
+        this.statusCode = 0;
+        this.data = null;
+        this.message = errorCode.message();
+        this.errorCode = errorCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Response body of a request, or file path of a download.
+     */
+    @Nullable
+    public String getData() {
+        return data;
+    }
+
+    @Nullable
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Error of the call, null when a response has been received.
+     */
+    @Nullable
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public boolean isSuccessful() {
+        return errorCode == null && statusCode >= 200 && statusCode < 300;
+    }
+}
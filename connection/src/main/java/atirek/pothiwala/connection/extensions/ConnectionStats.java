@@ -0,0 +1,63 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+public class ConnectionStats {
+
+    private final long newConnections;
+    private final long reusedConnections;
+    private final int pooledConnections;
+    private final int idleConnections;
+
+    public ConnectionStats(long newConnections, long reusedConnections, int pooledConnections, int idleConnections) {
+        this.newConnections = newConnections;
+        this.reusedConnections = reusedConnections;
+        this.pooledConnections = pooledConnections;
+        this.idleConnections = idleConnections;
+    }
+
+    /**
+     * Number of calls which had to open a new connection.
+     */
+    public long getNewConnections() {
+        return newConnections;
+    }
+
+    /**
+     * Number of calls which were served by an already opened connection.
+     */
+    public long getReusedConnections() {
+        return reusedConnections;
+    }
+
+    /**
+     * Connections currently held by the shared pool.
+     */
+    public int getPooledConnections() {
+        return pooledConnections;
+    }
+
+    /**
+     * Connections currently idle in the shared pool.
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Fraction of calls which reused a connection, between 0 and 1.
+     */
+    public float getReuseRatio() {
+        long total = newConnections + reusedConnections;
+        return total == 0 ? 0f : (float) reusedConnections / total;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "New: %d, Reused: %d (%.1f%%), Pooled: %d, Idle: %d",
+                newConnections, reusedConnections, getReuseRatio() * 100, pooledConnections, idleConnections);
+    }
+}
@@ -0,0 +1,5 @@
+package atirek.pothiwala.connection.extensions;
+
+public interface ConnectivityListener {
+    void onConnectivityChanged(boolean available);
+}
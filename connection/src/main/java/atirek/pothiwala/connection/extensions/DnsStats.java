@@ -0,0 +1,66 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+public class DnsStats {
+
+    private final long hits;
+    private final long misses;
+    private final long failures;
+    private final int size;
+    private final double meanLookupMillis;
+
+    public DnsStats(long hits, long misses, long failures, int size, double meanLookupMillis) {
+        this.hits = hits;
+        this.misses = misses;
+        this.failures = failures;
+        this.size = size;
+        this.meanLookupMillis = meanLookupMillis;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Lookups which went to the system resolver because the host was not cached or its entry had expired.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Lookups of the system resolver which failed.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Number of hosts held in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Mean duration of a lookup of the system resolver, which every hit saves.
+     */
+    public double getMeanLookupMillis() {
+        return meanLookupMillis;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "DNS: %d hits, %d misses, %d failures, %d hosts, %.1f ms per lookup",
+                hits, misses, failures, size, meanLookupMillis);
+    }
+}
@@ -6,7 +6,8 @@ public enum ErrorCode {
     requestCancel("Request has been cancelled."),
     errorSomething("Something went wrong, please try again."),
     downloadFailure("Unable to download, please try again."),
-    saveFailure("Unable to save, please try again.");
+    saveFailure("Unable to save, please try again."),
+    circuitOpen("Service is temporarily unavailable, please try again later.");
 
     private final String message;
 
@@ -0,0 +1,16 @@
+package atirek.pothiwala.connection.extensions;
+
+public enum FsyncPolicy {
+    /**
+     * Leave flushing to the operating system, fastest but data may be lost on power failure.
+     */
+    none,
+    /**
+     * Sync file to the storage device once the write is completed.
+     */
+    onClose,
+    /**
+     * Sync file to the storage device periodically while writing and once completed.
+     */
+    periodic
+}
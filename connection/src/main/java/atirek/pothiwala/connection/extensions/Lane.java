@@ -0,0 +1,10 @@
+package atirek.pothiwala.connection.extensions;
+
+/**
+ * Lane of a request in the {@link atirek.pothiwala.connection.helpers.RequestScheduler}, in order of precedence.
+ */
+public enum Lane {
+    interactive,
+    normal,
+    background
+}
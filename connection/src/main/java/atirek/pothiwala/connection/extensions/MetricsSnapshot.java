@@ -0,0 +1,46 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Latency statistics per TAG and phase at the time it was taken.
+ */
+public class MetricsSnapshot {
+
+    private final long takenAt;
+    private final Map<String, Map<Phase, PhaseStats>> tags;
+
+    public MetricsSnapshot(long takenAt, @NonNull Map<String, Map<Phase, PhaseStats>> tags) {
+        this.takenAt = takenAt;
+        this.tags = Collections.unmodifiableMap(tags);
+    }
+
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    @NonNull
+    public Map<String, Map<Phase, PhaseStats>> getTags() {
+        return tags;
+    }
+
+    @Nullable
+    public PhaseStats get(@NonNull String tag, @NonNull Phase phase) {
+        Map<Phase, PhaseStats> phases = tags.get(tag);
+        return phases != null ? phases.get(phase) : null;
+    }
+
+    /**
+     * Export the snapshot as JSON, e.g. to upload it from production builds.
+     */
+    @NonNull
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+}
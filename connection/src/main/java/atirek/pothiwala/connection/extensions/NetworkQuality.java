@@ -0,0 +1,13 @@
+package atirek.pothiwala.connection.extensions;
+
+/**
+ * Quality class of the current network estimated by {@link atirek.pothiwala.connection.helpers.NetworkQualityEstimator},
+ * from worst to best.
+ */
+public enum NetworkQuality {
+    poor,
+    moderate,
+    good,
+    excellent,
+    unknown
+}
@@ -0,0 +1,23 @@
+package atirek.pothiwala.connection.extensions;
+
+public enum Phase {
+    dns,
+    connect,
+    tls,
+    /**
+     * From the request being sent to the first byte of the response.
+     */
+    firstByte,
+    /**
+     * Transfer of the response body.
+     */
+    transfer,
+    /**
+     * From the response being read to the listener being called.
+     */
+    dispatch,
+    /**
+     * Whole call, from start to end.
+     */
+    total
+}
@@ -2,4 +2,14 @@ package atirek.pothiwala.connection.extensions;
 
 public interface ProgressListener {
     void onUploadProgress(int currentPercent, int totalPercent);
-}
\ No newline at end of file
+
+    /**
+     * Detailed progress of an upload or download, percent is -1 and eta is -1 when total length is unknown.
+     * By default it forwards the known percent to {@link #onUploadProgress(int, int)}.
+     */
+    default void onProgress(int percent, long bytes, long totalBytes, long bytesPerSecond, long etaMillis) {
+        if (percent >= 0) {
+            onUploadProgress(percent, 100);
+        }
+    }
+}
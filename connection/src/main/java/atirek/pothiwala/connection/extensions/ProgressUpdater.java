@@ -1,24 +1,123 @@
 package atirek.pothiwala.connection.extensions;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers progress of a transfer to a {@link ProgressListener} on the callback executor.
+ * Updates are coalesced by percent change or minimum interval and the same runnable is reused for every post,
+ * so at most one update is pending on the callback thread at any time.
+ */
 public class ProgressUpdater implements Runnable {
 
-    private final long uploaded;
-    private final long total;
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private final ProgressListener listener;
+    private final Executor executor;
+    private final AtomicBoolean posted = new AtomicBoolean();
 
+    private long uploaded;
+    private long total;
+    private long startNanos;
+    private long startBytes;
+    private long lastDispatchNanos;
+    private int lastPercent = -1;
+
+    public ProgressUpdater(@Nullable ProgressListener listener, @NonNull Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a one-shot update which is delivered when posted.
+     *
+     * @deprecated Use {@link #ProgressUpdater(ProgressListener, Executor)} and {@link #update(long, long)}.
+     */
+    @Deprecated
     public ProgressUpdater(long uploaded, long total, @Nullable ProgressListener listener) {
+        this.listener = listener;
+        this.executor = Runnable::run;
         this.uploaded = uploaded;
         this.total = total;
-        this.listener = listener;
+    }
+
+    /**
+     * Report transferred bytes from the transferring thread, total is -1 when unknown.
+     */
+    public void update(long transferred, long total) {
+        if (listener == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (startNanos == 0) {
+                startNanos = now;
+                startBytes = transferred;
+            }
+            if (transferred < uploaded && total == this.total) {
+                // Parallel transfers may report out of order.
+                return;
+            }
+            this.uploaded = transferred;
+            this.total = total;
+
+            int percent = percent(transferred, total);
+            boolean finished = total > 0 && transferred >= total;
+            boolean changed = percent >= 0 && percent != lastPercent;
+            if (!finished && !changed && now - lastDispatchNanos < MIN_INTERVAL_NANOS) {
+                return;
+            }
+            lastPercent = percent;
+            lastDispatchNanos = now;
+        }
+        dispatch();
+    }
+
+    /**
+     * Force delivery of the latest values, e.g. when a transfer of unknown length is finished.
+     */
+    public void complete() {
+        if (listener != null) {
+            dispatch();
+        }
+    }
+
+    private void dispatch() {
+        if (posted.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
     }
 
     @Override
     public void run() {
-        int current_percent = (int) (100 * uploaded / total);
+        posted.set(false);
+
+        long transferred;
+        long length;
+        long elapsedNanos;
+        long sessionBytes;
+        synchronized (this) {
+            transferred = uploaded;
+            length = total;
+            elapsedNanos = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+            sessionBytes = transferred - startBytes;
+        }
+
+        long bytesPerSecond = elapsedNanos > 0 ? (long) (sessionBytes * 1e9 / elapsedNanos) : 0;
+        long etaMillis = length > 0 && bytesPerSecond > 0 ? Math.max(0, (length - transferred) * 1000 / bytesPerSecond) : -1;
         if (listener != null) {
-            listener.onUploadProgress(current_percent, 100);
+            listener.onProgress(percent(transferred, length), transferred, length, bytesPerSecond, etaMillis);
+        }
+    }
+
+    private static int percent(long transferred, long total) {
+        if (total <= 0) {
+            return -1;
         }
+        return (int) Math.min(100, 100 * transferred / total);
     }
 }
@@ -0,0 +1,7 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+
+public interface TraceSink {
+    void onTrace(@NonNull String tag, @NonNull String message);
+}
@@ -0,0 +1,14 @@
+package atirek.pothiwala.connection.extensions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Typed variant of {@link ConnectListener}, data is already deserialized on a background thread.
+ * For unsuccessful responses data is null and message contains the error body when available.
+ */
+public interface TypedListener<T> {
+    void onResult(int statusCode, @Nullable T data, @Nullable String message);
+
+    void onError(@NonNull ErrorCode code);
+}
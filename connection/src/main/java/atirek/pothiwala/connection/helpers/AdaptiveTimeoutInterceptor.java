@@ -0,0 +1,27 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Shortens timeouts of each call on a fast network according to {@link NetworkQualityEstimator},
+ * installed through {@link ClientConfig#setAdaptiveTimeouts(boolean)}. Configured timeouts are the upper bound.
+ */
+class AdaptiveTimeoutInterceptor implements Interceptor {
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        NetworkQualityEstimator estimator = NetworkQualityEstimator.get();
+        return chain
+                .withConnectTimeout((int) estimator.adjustTimeout(chain.connectTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .withReadTimeout((int) estimator.adjustTimeout(chain.readTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .withWriteTimeout((int) estimator.adjustTimeout(chain.writeTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .proceed(chain.request());
+    }
+}
@@ -0,0 +1,69 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Converter of binary bodies which are never decoded with a charset, registered on every client of {@link ClientRegistry}.
+ * A response can be read as a {@link ByteString}, or as a {@link Buffer} / {@link BufferedSource} which takes over
+ * the pooled segments of the response without copying them into an array. A {@link ByteString} request body
+ * is sent as application/octet-stream.
+ */
+public class BinaryConverterFactory extends Converter.Factory {
+
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/octet-stream");
+
+    private BinaryConverterFactory() {
+    }
+
+    public static BinaryConverterFactory create() {
+        return new BinaryConverterFactory();
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type, @NonNull Annotation[] annotations, @NonNull Retrofit retrofit) {
+        if (type == ByteString.class) {
+            return value -> {
+                try {
+                    return value.source().readByteString();
+                } finally {
+                    value.close();
+                }
+            };
+        }
+        if (type == Buffer.class || type == BufferedSource.class) {
+            return value -> {
+                try {
+                    Buffer buffer = new Buffer();
+                    value.source().readAll(buffer);
+                    return buffer;
+                } finally {
+                    value.close();
+                }
+            };
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type type, @NonNull Annotation[] parameterAnnotations, @NonNull Annotation[] methodAnnotations, @NonNull Retrofit retrofit) {
+        if (type == ByteString.class) {
+            return (Converter<ByteString, RequestBody>) value -> RequestBody.create(MEDIA_TYPE, value);
+        }
+        return null;
+    }
+}
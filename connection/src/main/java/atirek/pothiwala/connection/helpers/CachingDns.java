@@ -0,0 +1,113 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import atirek.pothiwala.connection.extensions.DnsStats;
+import okhttp3.Dns;
+
+/**
+ * In-process DNS cache in front of the system resolver, used by the shared client of {@link ClientRegistry}.
+ * Resolved addresses are kept for a fixed time to live, since the system resolver does not expose the TTL of records.
+ * Addresses of a host are dropped as soon as a connection to it fails, so the next call resolves it again.
+ */
+public class CachingDns implements Dns {
+
+    private static class Record {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+
+        Record(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Dns delegate;
+    private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private volatile long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+
+    public CachingDns() {
+        this(Dns.SYSTEM);
+    }
+
+    public CachingDns(@NonNull Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Set how long resolved addresses are kept, default is 1 minute. Use 0 to disable caching.
+     */
+    public CachingDns setTtl(long ttl, @NonNull TimeUnit unit) {
+        this.ttlNanos = Math.max(0, unit.toNanos(ttl));
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = System.nanoTime();
+        Record record = records.get(hostname);
+        if (record != null && now - record.expiresAt < 0) {
+            hits.incrementAndGet();
+            return record.addresses;
+        }
+
+        misses.incrementAndGet();
+        List<InetAddress> addresses;
+        try {
+            addresses = delegate.lookup(hostname);
+        } catch (UnknownHostException e) {
+            failures.incrementAndGet();
+            records.remove(hostname);
+            throw e;
+        } finally {
+            lookupNanos.addAndGet(System.nanoTime() - now);
+        }
+        if (ttlNanos > 0 && !addresses.isEmpty()) {
+            addresses = Collections.unmodifiableList(addresses);
+            records.put(hostname, new Record(addresses, System.nanoTime() + ttlNanos));
+        }
+        return addresses;
+    }
+
+    /**
+     * Drop cached addresses of a host.
+     */
+    public void evict(@NonNull String hostname) {
+        records.remove(hostname);
+    }
+
+    /**
+     * Drop every cached address, called by {@link ConnectivityMonitor} when the default network changes.
+     */
+    public void clear() {
+        records.clear();
+    }
+
+    @NonNull
+    public DnsStats getStats() {
+        long lookups = misses.get();
+        return new DnsStats(hits.get(), lookups, failures.get(), records.size(),
+                lookups == 0 ? 0 : lookupNanos.get() / 1e6 / lookups);
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        failures.set(0);
+        lookupNanos.set(0);
+    }
+}
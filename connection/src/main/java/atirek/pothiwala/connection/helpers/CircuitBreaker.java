@@ -0,0 +1,280 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.CircuitListener;
+import atirek.pothiwala.connection.extensions.CircuitState;
+
+/**
+ * Per-host circuit breaker installed through {@link ClientConfig#setCircuitBreaker(CircuitBreaker)}.
+ * Outcomes of the last calls of a host are kept in a sliding window, and once the failure rate or the slow call rate
+ * reaches its threshold the circuit opens and calls to the host fail at once with {@link OpenException}.
+ * After a wait a limited number of probe calls are let through (half-open), which close the circuit again
+ * or open it for another wait.
+ * <p>
+ * Share one instance between clients which talk to the same hosts, so they see the same state.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Thrown when a call is rejected because the circuit of its host is open.
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String host) {
+            super("Circuit of " + host + " is open");
+        }
+    }
+
+    /**
+     * Permit of a rejected call, see {@link #tryAcquire(String)}.
+     */
+    public static final long REJECTED = -1;
+
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private volatile int windowSize = 20;
+    private volatile int minimumCalls = 10;
+    private volatile float failureRateThreshold = 0.5f;
+    private volatile float slowCallRateThreshold = 0.8f;
+    private volatile long slowCallNanos = TimeUnit.SECONDS.toNanos(10);
+    private volatile long openNanos = TimeUnit.SECONDS.toNanos(30);
+    private volatile int halfOpenCalls = 3;
+    private volatile CircuitListener listener;
+
+    /**
+     * Set number of the last calls of a host which are evaluated, default is 20,
+     * and the number of calls needed before the circuit can open, default is 10.
+     * Note: The window size applies to hosts called for the first time after this call.
+     */
+    public CircuitBreaker setWindow(int windowSize, int minimumCalls) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        return this;
+    }
+
+    /**
+     * Set share of failed calls which opens the circuit, default is 0.5.
+     * A call fails with an I/O error or a 5xx response.
+     */
+    public CircuitBreaker setFailureRateThreshold(float threshold) {
+        this.failureRateThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Set duration from which a call is slow, default is 10 seconds,
+     * and the share of slow calls which opens the circuit, default is 0.8.
+     */
+    public CircuitBreaker setSlowCall(long duration, @NonNull TimeUnit unit, float threshold) {
+        this.slowCallNanos = unit.toNanos(duration);
+        this.slowCallRateThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Set how long an open circuit rejects calls before it lets probes through, default is 30 seconds.
+     */
+    public CircuitBreaker setOpenDuration(long duration, @NonNull TimeUnit unit) {
+        this.openNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Set number of probe calls of a half-open circuit, default is 3.
+     */
+    public CircuitBreaker setHalfOpenCalls(int calls) {
+        this.halfOpenCalls = Math.max(1, calls);
+        return this;
+    }
+
+    /**
+     * Set listener of state transitions, called on the thread of the call which caused the transition.
+     */
+    public CircuitBreaker setListener(@Nullable CircuitListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    @NonNull
+    public CircuitState getState(@NonNull String host) {
+        Circuit circuit = circuits.get(host);
+        return circuit == null ? CircuitState.closed : circuit.getState();
+    }
+
+    /**
+     * Close every circuit and forget recorded calls.
+     */
+    public void reset() {
+        circuits.clear();
+    }
+
+    /**
+     * Ask permission for a call to the host, it must be followed by {@link #record} or {@link #release}.
+     *
+     * @return permit of the call, which belongs to the current state of the circuit, or {@link #REJECTED}
+     * when the call has to be rejected.
+     */
+    public long tryAcquire(@NonNull String host) {
+        return circuit(host).tryAcquire();
+    }
+
+    /**
+     * Record outcome of a permitted call, it is ignored when the circuit has changed state since the permit was given,
+     * e.g. a slow call of a closed circuit which completes while probes are running.
+     */
+    public void record(@NonNull String host, long permit, long durationNanos, boolean failed) {
+        circuit(host).record(permit, durationNanos, failed);
+    }
+
+    /**
+     * Give back the permission of a call which has been cancelled, without recording it.
+     */
+    public void release(@NonNull String host, long permit) {
+        circuit(host).release(permit);
+    }
+
+    private Circuit circuit(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            Circuit created = new Circuit(host);
+            circuit = circuits.putIfAbsent(host, created);
+            if (circuit == null) {
+                circuit = created;
+            }
+        }
+        return circuit;
+    }
+
+    private void notifyListener(String host, CircuitState from, CircuitState to) {
+        CircuitListener listener = this.listener;
+        if (listener != null && from != to) {
+            listener.onStateChanged(host, from, to);
+        }
+    }
+
+    private class Circuit {
+        private final String host;
+        private final boolean[] failures;
+        private final boolean[] slows;
+        private CircuitState state = CircuitState.closed;
+        // Incremented on every transition, so permits of an earlier state can be told apart.
+        private long generation;
+        private int next;
+        private int count;
+        private long openedAt;
+        private int probes;
+        private int probesDone;
+        private int probesFailed;
+
+        Circuit(String host) {
+            this.host = host;
+            this.failures = new boolean[windowSize];
+            this.slows = new boolean[windowSize];
+        }
+
+        synchronized CircuitState getState() {
+            return state;
+        }
+
+        long tryAcquire() {
+            CircuitState from;
+            long permit;
+            synchronized (this) {
+                from = state;
+                if (state == CircuitState.closed) {
+                    return generation;
+                }
+                if (state == CircuitState.open) {
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        return REJECTED;
+                    }
+                    state = CircuitState.halfOpen;
+                    generation++;
+                    probes = 0;
+                    probesDone = 0;
+                    probesFailed = 0;
+                }
+                if (probes >= halfOpenCalls) {
+                    return REJECTED;
+                }
+                probes++;
+                permit = generation;
+            }
+            notifyListener(host, from, CircuitState.halfOpen);
+            return permit;
+        }
+
+        void record(long permit, long durationNanos, boolean failed) {
+            boolean slow = durationNanos >= slowCallNanos;
+            CircuitState from;
+            CircuitState to;
+            synchronized (this) {
+                from = state;
+                if (permit != generation) {
+                    return;
+                }
+                if (state == CircuitState.halfOpen) {
+                    probesDone++;
+                    if (failed || slow) {
+                        probesFailed++;
+                    }
+                    if (probesDone >= probes) {
+                        // Every probe is back, a single bad probe of a few is enough to keep the host out.
+                        if (probesFailed >= Math.max(1f, failureRateThreshold * probesDone)) {
+                            open();
+                        } else if (probesDone >= halfOpenCalls) {
+                            close();
+                        }
+                    }
+                } else if (state == CircuitState.closed) {
+                    failures[next] = failed;
+                    slows[next] = slow;
+                    next = (next + 1) % failures.length;
+                    count = Math.min(count + 1, failures.length);
+                    if (count >= Math.min(minimumCalls, failures.length)) {
+                        int failedCalls = 0;
+                        int slowCalls = 0;
+                        for (int i = 0; i < count; i++) {
+                            failedCalls += failures[i] ? 1 : 0;
+                            slowCalls += slows[i] ? 1 : 0;
+                        }
+                        if (failedCalls >= failureRateThreshold * count || slowCalls >= slowCallRateThreshold * count) {
+                            open();
+                        }
+                    }
+                }
+                to = state;
+            }
+            notifyListener(host, from, to);
+        }
+
+        synchronized void release(long permit) {
+            if (permit == generation && state == CircuitState.halfOpen && probes > probesDone) {
+                probes--;
+            }
+        }
+
+        private void open() {
+            state = CircuitState.open;
+            generation++;
+            openedAt = System.nanoTime();
+            count = 0;
+            next = 0;
+        }
+
+        private void close() {
+            state = CircuitState.closed;
+            generation++;
+            count = 0;
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Rejects calls to hosts whose circuit is open and records the outcome of the others,
+ * installed through {@link ClientConfig#setCircuitBreaker(CircuitBreaker)}.
+ * Retries of a {@link RetryPolicy} happen inside, so a retried call counts once.
+ */
+class CircuitBreakerInterceptor implements Interceptor {
+
+    private final CircuitBreaker breaker;
+
+    CircuitBreakerInterceptor(@NonNull CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        long permit = breaker.tryAcquire(host);
+        if (permit == CircuitBreaker.REJECTED) {
+            throw new CircuitBreaker.OpenException(host);
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            if (chain.call().isCanceled()) {
+                breaker.release(host, permit);
+            } else {
+                breaker.record(host, permit, System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+        breaker.record(host, permit, System.nanoTime() - start, response.code() >= 500);
+        return response;
+    }
+}
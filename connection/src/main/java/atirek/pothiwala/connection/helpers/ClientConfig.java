@@ -0,0 +1,200 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Converter;
+
+public class ClientConfig {
+
+    private long connectTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private long readTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private long writeTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private Gson gson;
+    private RetryPolicy retryPolicy;
+    private Executor callbackExecutor;
+    private boolean adaptiveTimeouts;
+    private CircuitBreaker circuitBreaker;
+    private final List<Converter.Factory> converterFactories = new ArrayList<>();
+
+    public ClientConfig() {
+    }
+
+    private ClientConfig(@NonNull ClientConfig other) {
+        this.connectTimeoutMillis = other.connectTimeoutMillis;
+        this.readTimeoutMillis = other.readTimeoutMillis;
+        this.writeTimeoutMillis = other.writeTimeoutMillis;
+        this.gson = other.gson;
+        this.retryPolicy = other.retryPolicy;
+        this.callbackExecutor = other.callbackExecutor;
+        this.adaptiveTimeouts = other.adaptiveTimeouts;
+        this.circuitBreaker = other.circuitBreaker;
+        this.converterFactories.addAll(other.converterFactories);
+    }
+
+    /**
+     * Set connect timeout of the client, default is 1 minute.
+     */
+    public ClientConfig setConnectTimeout(long timeout, @NonNull TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Set read timeout of the client, default is 1 minute.
+     */
+    public ClientConfig setReadTimeout(long timeout, @NonNull TimeUnit unit) {
+        this.readTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Set write timeout of the client, default is 1 minute.
+     */
+    public ClientConfig setWriteTimeout(long timeout, @NonNull TimeUnit unit) {
+        this.writeTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Set a custom Gson instance used for typed responses, default is a plain Gson.
+     */
+    public ClientConfig setGson(@Nullable Gson gson) {
+        this.gson = gson;
+        return this;
+    }
+
+    /**
+     * Set a {@link RetryPolicy} applied to every call of the client, default is none.
+     * Hedging is only supported per call through Connector.
+     */
+    public ClientConfig setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Set executor on which Retrofit delivers callbacks of the client, default is the main thread on Android.
+     * Use a background executor for clients used from background workers.
+     */
+    public ClientConfig setCallbackExecutor(@Nullable Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Shorten timeouts of each call on a fast network as estimated by {@link NetworkQualityEstimator},
+     * the configured timeouts are kept on slow or unknown networks. Disabled by default.
+     */
+    public ClientConfig setAdaptiveTimeouts(boolean enable) {
+        this.adaptiveTimeouts = enable;
+        return this;
+    }
+
+    /**
+     * Set a {@link CircuitBreaker} which rejects calls to unhealthy hosts at once, default is none.
+     */
+    public ClientConfig setCircuitBreaker(@Nullable CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Add a converter, e.g. for protobuf or msgpack, which takes precedence over the built-in ones:
+     * {@link BinaryConverterFactory}, scalars and JSON.
+     */
+    public ClientConfig addConverterFactory(@NonNull Converter.Factory factory) {
+        this.converterFactories.add(factory);
+        return this;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public long getWriteTimeoutMillis() {
+        return writeTimeoutMillis;
+    }
+
+    @Nullable
+    public Gson getGson() {
+        return gson;
+    }
+
+    @Nullable
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Nullable
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    @Nullable
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @NonNull
+    public List<Converter.Factory> getConverterFactories() {
+        return Collections.unmodifiableList(converterFactories);
+    }
+
+    public boolean isAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    /**
+     * Immutable copy used as the registry key, so later changes to this config do not affect registered clients.
+     */
+    ClientConfig copy() {
+        return new ClientConfig(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClientConfig)) {
+            return false;
+        }
+        ClientConfig that = (ClientConfig) o;
+        return connectTimeoutMillis == that.connectTimeoutMillis
+                && readTimeoutMillis == that.readTimeoutMillis
+                && writeTimeoutMillis == that.writeTimeoutMillis
+                && gson == that.gson
+                && retryPolicy == that.retryPolicy
+                && callbackExecutor == that.callbackExecutor
+                && adaptiveTimeouts == that.adaptiveTimeouts
+                && circuitBreaker == that.circuitBreaker
+                && converterFactories.equals(that.converterFactories);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (connectTimeoutMillis ^ (connectTimeoutMillis >>> 32));
+        result = 31 * result + (int) (readTimeoutMillis ^ (readTimeoutMillis >>> 32));
+        result = 31 * result + (int) (writeTimeoutMillis ^ (writeTimeoutMillis >>> 32));
+        result = 31 * result + System.identityHashCode(gson);
+        result = 31 * result + System.identityHashCode(retryPolicy);
+        result = 31 * result + System.identityHashCode(callbackExecutor);
+        result = 31 * result + (adaptiveTimeouts ? 1 : 0);
+        result = 31 * result + System.identityHashCode(circuitBreaker);
+        result = 31 * result + converterFactories.hashCode();
+        return result;
+    }
+}
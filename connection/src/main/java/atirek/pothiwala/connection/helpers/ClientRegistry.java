@@ -0,0 +1,261 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.CompressionStats;
+import atirek.pothiwala.connection.extensions.ConnectionStats;
+import atirek.pothiwala.connection.extensions.DnsStats;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+
+/**
+ * Keeps one shared connection pool, dispatcher and cache for every client created by the library,
+ * so that connections and threads are reused across screens instead of being created per call.
+ */
+public class ClientRegistry {
+
+    /**
+     * TAG of {@link ConnectorMetrics} under which prewarming calls are recorded.
+     */
+    public static final String PREWARM_TAG = "prewarm";
+
+    private static final Map<ClientConfig, Map<String, Retrofit>> clients = new HashMap<>();
+    private static final CachingDns dns = new CachingDns();
+
+    private static OkHttpClient sharedClient;
+    private static int maxIdleConnections = 5;
+    private static long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+    private static int maxRequests = 64;
+    private static int maxRequestsPerHost = 5;
+    private static File cacheDirectory;
+    private static long cacheSize;
+
+    /**
+     * Set size of the shared connection pool, default is 5 idle connections kept alive for 5 minutes.
+     * Note: Clients created before this call keep using the previous pool.
+     */
+    public static synchronized void setPoolSize(int maxIdleConnections, long keepAlive, @NonNull TimeUnit unit) {
+        ClientRegistry.maxIdleConnections = maxIdleConnections;
+        ClientRegistry.keepAliveMillis = unit.toMillis(keepAlive);
+        reset();
+    }
+
+    /**
+     * Set maximum number of concurrent requests of the shared dispatcher, default is 64.
+     */
+    public static synchronized void setMaxRequests(int maxRequests) {
+        ClientRegistry.maxRequests = maxRequests;
+        if (sharedClient != null) {
+            sharedClient.dispatcher().setMaxRequests(maxRequests);
+        }
+    }
+
+    /**
+     * Set maximum number of concurrent requests per host of the shared dispatcher, default is 5.
+     */
+    public static synchronized void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        ClientRegistry.maxRequestsPerHost = maxRequestsPerHost;
+        if (sharedClient != null) {
+            sharedClient.dispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
+        }
+    }
+
+    /**
+     * Set a shared HTTP disk cache, pass null directory to disable it. Disabled by default.
+     * Note: Clients created before this call keep using the previous cache.
+     */
+    public static synchronized void setCache(@Nullable File directory, long maxSize) {
+        ClientRegistry.cacheDirectory = directory;
+        ClientRegistry.cacheSize = maxSize;
+        reset();
+    }
+
+    /**
+     * Shared client which owns the connection pool, dispatcher and cache.
+     */
+    @NonNull
+    public static synchronized OkHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                    .dns(dns)
+                    .eventListenerFactory(call -> new MetricsListener())
+                    .addInterceptor(new RevalidationInterceptor())
+                    .addInterceptor(new CompressionInterceptor());
+            if (cacheDirectory != null) {
+                builder.cache(new Cache(cacheDirectory, cacheSize));
+            }
+            sharedClient = builder.build();
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Get a RETROFIT CLIENT for the BASE URL and configuration, an existing one is returned if already created.
+     */
+    @NonNull
+    public static synchronized Retrofit getClient(@NonNull String baseUrl, @NonNull ClientConfig config) {
+        Map<String, Retrofit> retrofitMap = clients.get(config);
+        if (retrofitMap == null) {
+            retrofitMap = new HashMap<>();
+            clients.put(config.copy(), retrofitMap);
+        }
+
+        Retrofit retrofit = retrofitMap.get(baseUrl);
+        if (retrofit == null) {
+            Retrofit.Builder builder = new Retrofit.Builder()
+                    .baseUrl(baseUrl)
+                    .client(createClient(config));
+            for (Converter.Factory factory : config.getConverterFactories()) {
+                builder.addConverterFactory(factory);
+            }
+            builder.addConverterFactory(BinaryConverterFactory.create())
+                    .addConverterFactory(ScalarsConverterFactory.create())
+                    .addConverterFactory(config.getGson() != null
+                            ? StreamingConverterFactory.create(config.getGson())
+                            : StreamingConverterFactory.create());
+            if (config.getCallbackExecutor() != null) {
+                builder.callbackExecutor(config.getCallbackExecutor());
+            }
+            retrofit = builder.build();
+            retrofitMap.put(baseUrl, retrofit);
+        }
+        return retrofit;
+    }
+
+    /**
+     * Resolve, connect and TLS-handshake to the origins of the BASE URLs in the background, so the first calls after
+     * launch find a warm connection in the shared pool. Every origin is warmed once with a HEAD request of its BASE URL,
+     * whose status is ignored.
+     */
+    public static void prewarm(@NonNull List<String> baseUrls) {
+        OkHttpClient client = getSharedClient();
+        Set<String> origins = new HashSet<>();
+        for (String baseUrl : baseUrls) {
+            HttpUrl url = HttpUrl.parse(baseUrl);
+            if (url == null || !origins.add(url.scheme() + "://" + url.host() + ":" + url.port())) {
+                continue;
+            }
+            Request request = new Request.Builder()
+                    .url(url)
+                    .head()
+                    .cacheControl(CacheControl.FORCE_NETWORK)
+                    .build();
+            ConnectorMetrics.tag(request, PREWARM_TAG);
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    response.close();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    // Nothing to warm, the first real call connects as usual.
+                }
+            });
+        }
+    }
+
+    /**
+     * In-process DNS cache of the shared client, e.g. to change its time to live.
+     */
+    @NonNull
+    public static CachingDns getDns() {
+        return dns;
+    }
+
+    /**
+     * Hit and miss counters of the DNS cache.
+     */
+    @NonNull
+    public static DnsStats getDnsStats() {
+        return dns.getStats();
+    }
+
+    public static void resetDnsStats() {
+        dns.resetStats();
+    }
+
+    /**
+     * Statistics of connection reuse across every client of the registry.
+     */
+    @NonNull
+    public static synchronized ConnectionStats getStats() {
+        ConnectionPool pool = getSharedClient().connectionPool();
+        return new ConnectionStats(
+                ConnectionTracker.newConnections.get(),
+                ConnectionTracker.reusedConnections.get(),
+                pool.connectionCount(),
+                pool.idleConnectionCount());
+    }
+
+    /**
+     * Compression ratio and time of gzip request and response bodies per TAG.
+     */
+    @NonNull
+    public static Map<String, CompressionStats> getCompressionStats() {
+        return CompressionInterceptor.getStats();
+    }
+
+    public static void resetCompressionStats() {
+        CompressionInterceptor.resetStats();
+    }
+
+    /**
+     * Reset connection reuse statistics.
+     */
+    public static void resetStats() {
+        ConnectionTracker.reset();
+    }
+
+    /**
+     * Derived clients share pool, dispatcher and cache of the shared client.
+     */
+    private static OkHttpClient createClient(ClientConfig config) {
+        OkHttpClient.Builder builder = getSharedClient().newBuilder()
+                .connectTimeout(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS);
+        if (config.getCircuitBreaker() != null) {
+            builder.addInterceptor(new CircuitBreakerInterceptor(config.getCircuitBreaker()));
+        }
+        if (config.isAdaptiveTimeouts()) {
+            builder.addInterceptor(new AdaptiveTimeoutInterceptor());
+        }
+        if (config.getRetryPolicy() != null) {
+            builder.addInterceptor(new RetryInterceptor(config.getRetryPolicy()));
+        }
+        return builder.build();
+    }
+
+    private static void reset() {
+        sharedClient = null;
+        clients.clear();
+    }
+}
@@ -0,0 +1,203 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import atirek.pothiwala.connection.extensions.CompressionStats;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Adds Content-Encoding to {@link GzipRequestBody} requests and decodes gzip responses as they are read,
+ * recording compression ratio and time per TAG of {@link ConnectorMetrics}.
+ * Requests which set their own Accept-Encoding, e.g. ranged downloads, are left untouched.
+ */
+class CompressionInterceptor implements Interceptor {
+
+    private static final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @NonNull
+    static Map<String, CompressionStats> getStats() {
+        Map<String, CompressionStats> stats = new HashMap<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().toStats());
+        }
+        return stats;
+    }
+
+    static void resetStats() {
+        recorders.clear();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String tag = ConnectorMetrics.tagOf(request);
+        Request.Builder builder = request.newBuilder();
+
+        GzipRequestBody gzipBody = request.body() instanceof GzipRequestBody ? (GzipRequestBody) request.body() : null;
+        if (gzipBody != null) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        boolean decode = request.header("Accept-Encoding") == null && request.header("Range") == null;
+        if (decode) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+
+        Response response = chain.proceed(builder.build());
+        if (gzipBody != null) {
+            recorder(tag).recordRequest(gzipBody.getOriginalLength(), gzipBody.contentLength(), gzipBody.getCompressNanos());
+        }
+        ResponseBody body = response.body();
+        if (!decode || body == null || !hasBody(request, response) || !"gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            return response;
+        }
+
+        DecodingSource source = new DecodingSource(body.source(), recorder(tag));
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(body.contentType(), -1, Okio.buffer(source)))
+                .build();
+    }
+
+    private static boolean hasBody(Request request, Response response) {
+        int code = response.code();
+        return !"HEAD".equals(request.method()) && code != 204 && code != 304 && (code < 100 || code >= 200);
+    }
+
+    private static Recorder recorder(String tag) {
+        Recorder recorder = recorders.get(tag);
+        if (recorder == null && recorders.size() >= ConnectorMetrics.MAX_TAGS && !ConnectorMetrics.OVERFLOW_TAG.equals(tag)) {
+            return recorder(ConnectorMetrics.OVERFLOW_TAG);
+        }
+        if (recorder == null) {
+            Recorder created = new Recorder();
+            recorder = recorders.putIfAbsent(tag, created);
+            if (recorder == null) {
+                recorder = created;
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * Gzip decoding which measures encoded and decoded bytes, and the time spent inflating without network waits.
+     */
+    private static class DecodingSource implements Source {
+
+        private final CountingSource encoded;
+        private final GzipSource gzip;
+        private final Recorder recorder;
+        private long decodedBytes;
+        private long decodeNanos;
+        private boolean recorded;
+
+        DecodingSource(BufferedSource source, Recorder recorder) {
+            this.encoded = new CountingSource(source);
+            this.gzip = new GzipSource(encoded);
+            this.recorder = recorder;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long networkNanos = encoded.nanos;
+            long read = gzip.read(sink, byteCount);
+            decodeNanos += System.nanoTime() - start - (encoded.nanos - networkNanos);
+            if (read == -1) {
+                record();
+            } else {
+                decodedBytes += read;
+            }
+            return read;
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return gzip.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            record();
+            gzip.close();
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                recorder.recordResponse(decodedBytes, encoded.bytes, decodeNanos);
+            }
+        }
+    }
+
+    private static class CountingSource extends ForwardingSource {
+
+        long bytes;
+        long nanos;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long read = super.read(sink, byteCount);
+            nanos += System.nanoTime() - start;
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        }
+    }
+
+    private static class Recorder {
+
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong requestBytes = new AtomicLong();
+        final AtomicLong requestEncodedBytes = new AtomicLong();
+        final AtomicLong requestNanos = new AtomicLong();
+        final AtomicLong responses = new AtomicLong();
+        final AtomicLong responseBytes = new AtomicLong();
+        final AtomicLong responseEncodedBytes = new AtomicLong();
+        final AtomicLong responseNanos = new AtomicLong();
+
+        void recordRequest(long bytes, long encodedBytes, long nanos) {
+            requests.incrementAndGet();
+            requestBytes.addAndGet(bytes);
+            requestEncodedBytes.addAndGet(encodedBytes);
+            requestNanos.addAndGet(nanos);
+        }
+
+        void recordResponse(long bytes, long encodedBytes, long nanos) {
+            responses.incrementAndGet();
+            responseBytes.addAndGet(bytes);
+            responseEncodedBytes.addAndGet(encodedBytes);
+            responseNanos.addAndGet(nanos);
+        }
+
+        CompressionStats toStats() {
+            return new CompressionStats(requests.get(), requestBytes.get(), requestEncodedBytes.get(), requestNanos.get(),
+                    responses.get(), responseBytes.get(), responseEncodedBytes.get(), responseNanos.get());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+/**
+ * Listens to a single call and records whether it opened a new connection or reused a pooled one.
+ */
+class ConnectionTracker extends EventListener {
+
+    static final AtomicLong newConnections = new AtomicLong();
+    static final AtomicLong reusedConnections = new AtomicLong();
+
+    private boolean connecting;
+
+    static void reset() {
+        newConnections.set(0);
+        reusedConnections.set(0);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connecting = true;
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        if (connecting) {
+            connecting = false;
+            newConnections.incrementAndGet();
+        } else {
+            reusedConnections.incrementAndGet();
+        }
+    }
+}
@@ -52,9 +52,17 @@ public class Connectivity {
 
     /**
      * Check whether you are connected to internet or not.
+     * The state is kept up to date by {@link ConnectivityMonitor}, so this is a cheap call.
      */
-    @SuppressLint("MissingPermission")
     public static boolean isInternetAvailable(Context context) {
+        return ConnectivityMonitor.get(context).isAvailable();
+    }
+
+    /**
+     * Ask the system whether you are connected to internet or not.
+     */
+    @SuppressLint("MissingPermission")
+    static boolean checkInternetAvailable(Context context) {
         ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         if (connectivityManager != null) {
             if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
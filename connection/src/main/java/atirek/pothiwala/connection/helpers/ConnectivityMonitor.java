@@ -0,0 +1,208 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import atirek.pothiwala.connection.extensions.ConnectivityListener;
+
+/**
+ * Keeps the connectivity state of the default network from a registered network callback,
+ * so that checking it before every request is a volatile read instead of a binder call.
+ * Link bandwidth of the default network is passed on to {@link NetworkQualityEstimator}. The estimator
+ * and the DNS cache of {@link ClientRegistry} are reset when another network becomes the default.
+ */
+public class ConnectivityMonitor {
+
+    private static volatile ConnectivityMonitor instance;
+
+    private final Context context;
+    // Network on API 23 and later, type and extra info of the active network before.
+    private Object defaultNetwork;
+    private final List<ConnectivityListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean available;
+    private volatile boolean registered;
+
+    private ConnectivityMonitor(@NonNull Context context) {
+        this.context = context;
+        this.available = Connectivity.checkInternetAvailable(context);
+        register();
+    }
+
+    @NonNull
+    public static ConnectivityMonitor get(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (ConnectivityMonitor.class) {
+                if (instance == null) {
+                    instance = new ConnectivityMonitor(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Whether the default network has internet capability, validated by the system on API 24 and later.
+     */
+    public boolean isAvailable() {
+        if (!registered) {
+            // Callback could not be registered, fall back to asking the system.
+            return Connectivity.checkInternetAvailable(context);
+        }
+        return available;
+    }
+
+    public void addListener(@NonNull ConnectivityListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NonNull ConnectivityListener listener) {
+        listeners.remove(listener);
+    }
+
+    @SuppressLint("MissingPermission")
+    private void register() {
+        final ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                connectivityManager.registerDefaultNetworkCallback(new DefaultNetworkCallback());
+            } else {
+                NetworkRequest request = new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .build();
+                connectivityManager.registerNetworkCallback(request, new ActiveNetworkCallback(connectivityManager));
+            }
+            registered = true;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Follows the network the system uses by default, a background cellular network or a VPN
+     * which is not the default network does not count as available.
+     */
+    private class DefaultNetworkCallback extends ConnectivityManager.NetworkCallback {
+
+        private volatile Network current;
+
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            current = network;
+            defaultChanged(network);
+            update(true);
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            if (network.equals(current)) {
+                current = null;
+                update(false);
+            }
+        }
+
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+            if (!network.equals(current)) {
+                return;
+            }
+            NetworkQualityEstimator.get().setLinkBandwidth(
+                    capabilities.getLinkDownstreamBandwidthKbps(), capabilities.getLinkUpstreamBandwidthKbps());
+            update(capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED));
+        }
+    }
+
+    /**
+     * Before API 24 there is no callback of the default network, every change of a network with internet
+     * capability asks the system for the active network instead.
+     */
+    private class ActiveNetworkCallback extends ConnectivityManager.NetworkCallback {
+
+        private final ConnectivityManager connectivityManager;
+
+        ActiveNetworkCallback(@NonNull ConnectivityManager connectivityManager) {
+            this.connectivityManager = connectivityManager;
+        }
+
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            refresh();
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            refresh();
+        }
+
+        @Override
+        @SuppressLint("MissingPermission")
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && network.equals(connectivityManager.getActiveNetwork())) {
+                NetworkQualityEstimator.get().setLinkBandwidth(
+                        capabilities.getLinkDownstreamBandwidthKbps(), capabilities.getLinkUpstreamBandwidthKbps());
+            }
+            refresh();
+        }
+
+        @SuppressLint("MissingPermission")
+        private void refresh() {
+            Object active;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                active = connectivityManager.getActiveNetwork();
+            } else {
+                NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+                active = info != null ? info.getType() + "/" + info.getExtraInfo() : null;
+            }
+            if (active != null) {
+                defaultChanged(active);
+            }
+            update(Connectivity.checkInternetAvailable(context));
+        }
+    }
+
+    /**
+     * Forget what was learned about the previous default network once another one takes over.
+     */
+    private void defaultChanged(@NonNull Object network) {
+        synchronized (this) {
+            if (network.equals(defaultNetwork)) {
+                return;
+            }
+            boolean first = defaultNetwork == null;
+            defaultNetwork = network;
+            if (first) {
+                return;
+            }
+        }
+        // Samples and addresses of the previous network do not describe the new one.
+        NetworkQualityEstimator.get().reset();
+        ClientRegistry.getDns().clear();
+    }
+
+    private void update(boolean current) {
+        boolean changed;
+        synchronized (this) {
+            changed = current != available;
+            available = current;
+        }
+        if (changed) {
+            for (ConnectivityListener listener : listeners) {
+                listener.onConnectivityChanged(current);
+            }
+        }
+    }
+}
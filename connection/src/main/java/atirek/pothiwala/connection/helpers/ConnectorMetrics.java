@@ -0,0 +1,147 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import atirek.pothiwala.connection.extensions.MetricsSnapshot;
+import atirek.pothiwala.connection.extensions.Phase;
+import atirek.pothiwala.connection.extensions.PhaseStats;
+import okhttp3.Request;
+
+/**
+ * In-memory latency histograms per TAG and {@link Phase}, fed by the event listener of the shared client.
+ * Requests are associated to the TAG passed to Connector, untagged requests are grouped by host.
+ * At most {@link #MAX_TAGS} TAGs are kept, the requests of any further TAG are grouped under {@link #OVERFLOW_TAG}.
+ */
+public class ConnectorMetrics {
+
+    public static final int MAX_TAGS = 256;
+    public static final String OVERFLOW_TAG = "other";
+
+    private static final ConcurrentMap<String, Map<Phase, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private static final Map<Request, String> tags = new WeakHashMap<>();
+    private static final Map<Request, Long> responseEnds = new WeakHashMap<>();
+
+    private static volatile boolean enabled = true;
+
+    /**
+     * Enable or disable recording, enabled by default.
+     */
+    public static void setEnabled(boolean enabled) {
+        ConnectorMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Associate a request with the TAG of its Connector call.
+     */
+    public static void tag(@NonNull Request request, @NonNull String tag) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (tags) {
+            tags.put(request, tag);
+        }
+    }
+
+    @NonNull
+    public static String tagOf(@NonNull Request request) {
+        synchronized (tags) {
+            String tag = tags.get(request);
+            return tag != null ? tag : request.url().host();
+        }
+    }
+
+    public static void record(@NonNull String tag, @NonNull Phase phase, long nanos) {
+        if (!enabled || nanos < 0) {
+            return;
+        }
+        Map<Phase, LatencyHistogram> phases = histograms.get(tag);
+        if (phases == null && histograms.size() >= MAX_TAGS && !OVERFLOW_TAG.equals(tag)) {
+            record(OVERFLOW_TAG, phase, nanos);
+            return;
+        }
+        if (phases == null) {
+            Map<Phase, LatencyHistogram> created = new EnumMap<>(Phase.class);
+            for (Phase item : Phase.values()) {
+                created.put(item, new LatencyHistogram());
+            }
+            phases = histograms.putIfAbsent(tag, created);
+            if (phases == null) {
+                phases = created;
+            }
+        }
+        phases.get(phase).record(nanos);
+    }
+
+    /**
+     * Remember when the response of a request has been read, to measure callback dispatch.
+     */
+    static void responseRead(@NonNull Request request, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (responseEnds) {
+            responseEnds.put(request, nanos);
+        }
+    }
+
+    /**
+     * Record time between the response being read and its listener being called.
+     */
+    public static void dispatched(@NonNull Request request) {
+        if (!enabled) {
+            return;
+        }
+        Long readAt;
+        synchronized (responseEnds) {
+            readAt = responseEnds.remove(request);
+        }
+        if (readAt != null) {
+            record(tagOf(request), Phase.dispatch, System.nanoTime() - readAt);
+        }
+    }
+
+    /**
+     * Percentile in milliseconds of a phase of a TAG, 0 when nothing has been recorded.
+     */
+    public static double percentile(@NonNull String tag, @NonNull Phase phase, double percentile) {
+        Map<Phase, LatencyHistogram> phases = histograms.get(tag);
+        return phases != null ? phases.get(phase).percentile(percentile) : 0;
+    }
+
+    @Nullable
+    public static LatencyHistogram histogram(@NonNull String tag, @NonNull Phase phase) {
+        Map<Phase, LatencyHistogram> phases = histograms.get(tag);
+        return phases != null ? phases.get(phase) : null;
+    }
+
+    @NonNull
+    public static MetricsSnapshot snapshot() {
+        Map<String, Map<Phase, PhaseStats>> result = new HashMap<>();
+        for (Map.Entry<String, Map<Phase, LatencyHistogram>> entry : histograms.entrySet()) {
+            Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+            for (Map.Entry<Phase, LatencyHistogram> phase : entry.getValue().entrySet()) {
+                if (phase.getValue().getCount() > 0) {
+                    phases.put(phase.getKey(), phase.getValue().toStats());
+                }
+            }
+            result.put(entry.getKey(), phases);
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), result);
+    }
+
+    public static void reset() {
+        histograms.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.content.res.AssetFileDescriptor;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import okhttp3.MediaType;
+
+/**
+ * Upload body of a {@link ParcelFileDescriptor} or {@link AssetFileDescriptor}, e.g. from the Storage Access Framework.
+ * The descriptor stays open between writes, so a retried upload seeks back instead of reopening the source.
+ * Pipes and sockets can not seek and are written only once.
+ * Note: The descriptor is owned by the caller, close it once the upload is finished.
+ */
+public class DescriptorRequestBody extends FileChannelRequestBody implements Closeable {
+
+    private AssetFileDescriptor descriptor;
+    private FileChannel channel;
+
+    public DescriptorRequestBody(@Nullable MediaType mediaType, @NonNull ParcelFileDescriptor descriptor) {
+        this(mediaType, new AssetFileDescriptor(descriptor, 0, descriptor.getStatSize()));
+    }
+
+    public DescriptorRequestBody(@Nullable MediaType mediaType, @NonNull AssetFileDescriptor descriptor) {
+        super(mediaType);
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * For subclasses which open the descriptor lazily through {@link #openDescriptor()}.
+     */
+    protected DescriptorRequestBody(@Nullable MediaType mediaType) {
+        super(mediaType);
+    }
+
+    /**
+     * Open the descriptor again after it has been closed, subclasses which own their source can override it.
+     */
+    @NonNull
+    protected AssetFileDescriptor openDescriptor() throws IOException {
+        throw new IOException("Descriptor is closed");
+    }
+
+    @NonNull
+    protected synchronized AssetFileDescriptor descriptor() throws IOException {
+        if (descriptor == null) {
+            descriptor = openDescriptor();
+        }
+        return descriptor;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return descriptor().getLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        try {
+            return descriptor().getParcelFileDescriptor().getStatSize() < 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    @NonNull
+    @Override
+    protected synchronized FileChannel openChannel() throws IOException {
+        AssetFileDescriptor descriptor = descriptor();
+        if (channel == null) {
+            channel = new FileInputStream(descriptor.getFileDescriptor()).getChannel();
+        }
+        if (!isOneShot()) {
+            channel.position(descriptor.getStartOffset());
+        }
+        return channel;
+    }
+
+    @Override
+    protected void closeChannel(@NonNull FileChannel channel, boolean complete) throws IOException {
+        // Kept open for the next write.
+    }
+
+    /**
+     * Close the channel and descriptor.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel = null;
+        if (descriptor != null) {
+            descriptor.close();
+            descriptor = null;
+        }
+    }
+}
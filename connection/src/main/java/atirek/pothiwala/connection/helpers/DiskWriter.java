@@ -0,0 +1,124 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import atirek.pothiwala.connection.extensions.FsyncPolicy;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Drains a response source into a file channel by moving Okio segments, without an intermediate byte array.
+ * Streams are always closed, even when the transfer fails.
+ */
+public class DiskWriter {
+
+    public interface WriteCallback {
+        /**
+         * Called with the number of bytes which have just been written to the file.
+         */
+        void onWritten(long bytes) throws IOException;
+    }
+
+    /**
+     * Upper bound of a single read, a socket source returns what has arrived, usually one 8 KB segment,
+     * so received bytes reach the file without waiting for more.
+     */
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.none;
+    private long syncInterval = 8 * 1024 * 1024;
+
+    /**
+     * Set when written data is synced to the storage device, default is {@link FsyncPolicy#none}.
+     */
+    public DiskWriter setFsyncPolicy(@NonNull FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    /**
+     * Set number of bytes between two syncs of {@link FsyncPolicy#periodic}, default is 8 MB.
+     */
+    public DiskWriter setSyncInterval(long bytes) {
+        this.syncInterval = bytes;
+        return this;
+    }
+
+    /**
+     * Write source into the file starting at the offset.
+     *
+     * @param limit       maximum number of bytes to write, -1 to write until the source is exhausted.
+     * @param preallocate expected size of the whole file, the file is extended to it before writing, -1 if unknown.
+     * @return number of bytes written.
+     */
+    public long write(@NonNull BufferedSource source, @NonNull File file, long offset, long limit, long preallocate,
+                      @Nullable WriteCallback callback) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (preallocate > 0 && randomAccessFile.length() < preallocate) {
+                randomAccessFile.setLength(preallocate);
+            }
+            channel.position(offset);
+
+            BufferedSink sink = Okio.buffer(Okio.sink(Channels.newOutputStream(channel)));
+            Buffer buffer = sink.buffer();
+            long written = 0;
+            long unsynced = 0;
+            boolean completed = false;
+            try {
+                while (true) {
+                    long toRead = limit < 0 ? SEGMENT_SIZE : Math.min(SEGMENT_SIZE, limit - written - buffer.size());
+                    if (toRead <= 0 || source.read(buffer, toRead) == -1) {
+                        break;
+                    }
+                    long pending = buffer.size();
+                    sink.emitCompleteSegments();
+                    long flushed = pending - buffer.size();
+                    if (flushed > 0) {
+                        written += flushed;
+                        unsynced += flushed;
+                        if (fsyncPolicy == FsyncPolicy.periodic && unsynced >= syncInterval) {
+                            channel.force(false);
+                            unsynced = 0;
+                        }
+                        if (callback != null) {
+                            callback.onWritten(flushed);
+                        }
+                    }
+                }
+                completed = true;
+            } finally {
+                // Keep bytes which have been received, even when the transfer is interrupted.
+                long pending = buffer.size();
+                try {
+                    sink.flush();
+                    written += pending;
+                    if (callback != null && pending > 0) {
+                        callback.onWritten(pending);
+                    }
+                } catch (IOException e) {
+                    if (completed) {
+                        throw e;
+                    }
+                }
+            }
+
+            if (limit < 0 && preallocate <= 0 && channel.size() > offset + written) {
+                channel.truncate(offset + written);
+            }
+            if (fsyncPolicy != FsyncPolicy.none) {
+                channel.force(false);
+            }
+            return written;
+        }
+    }
+}
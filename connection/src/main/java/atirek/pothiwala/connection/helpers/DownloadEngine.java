@@ -0,0 +1,471 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import atirek.pothiwala.connection.extensions.FsyncPolicy;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Downloads a single file with support for resuming and parallel segments.
+ * <p>
+ * Progress of a download is kept in a partial file next to the target and a small sidecar metadata file,
+ * so an interrupted download continues from where it stopped using HTTP Range / If-Range.
+ * When the server accepts ranges, large files are split into parallel segments which are written
+ * at their own offsets of the partial file, so no stitching copy is needed at the end.
+ */
+public class DownloadEngine {
+
+    public interface ProgressCallback {
+        void onProgress(long downloaded, long total);
+    }
+
+    private static final long META_INTERVAL = 1024 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 2 * 1024 * 1024;
+
+    private final OkHttpClient client;
+    private final Request request;
+    private final File target;
+    private final File partialFile;
+    private final File metaFile;
+    private final List<Call> calls = new ArrayList<>();
+    private final AtomicLong downloaded = new AtomicLong();
+    private final DiskWriter diskWriter = new DiskWriter();
+
+    private int segmentCount = 4;
+    private ProgressCallback progressCallback;
+    private volatile boolean cancelled;
+
+    private String validator;
+    private long length = -1;
+    private List<Segment> segments = new ArrayList<>();
+    private volatile long lastSavedAt;
+
+    public DownloadEngine(@NonNull OkHttpClient client, @NonNull Request request, @NonNull File target) {
+        this.client = client;
+        this.request = request;
+        this.target = target;
+        this.partialFile = new File(target.getPath() + ".part");
+        this.metaFile = new File(target.getPath() + ".meta");
+    }
+
+    /**
+     * Set maximum number of parallel segments, default is 4. Use 1 to always download in a single stream.
+     */
+    public DownloadEngine setSegments(int segmentCount) {
+        this.segmentCount = Math.max(1, segmentCount);
+        return this;
+    }
+
+    /**
+     * Set when downloaded data is synced to the storage device, default is {@link FsyncPolicy#none}.
+     */
+    public DownloadEngine setFsyncPolicy(@NonNull FsyncPolicy fsyncPolicy) {
+        diskWriter.setFsyncPolicy(fsyncPolicy);
+        return this;
+    }
+
+    /**
+     * Set callback which receives progress from the downloading threads.
+     */
+    public DownloadEngine setProgressCallback(@Nullable ProgressCallback progressCallback) {
+        this.progressCallback = progressCallback;
+        return this;
+    }
+
+    /**
+     * ETag or Last-Modified the download has been resumed with, available once it is complete.
+     */
+    @Nullable
+    public String getValidator() {
+        return validator;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the download, the partial file is kept so that it can be resumed later.
+     */
+    public void cancel() {
+        cancelled = true;
+        abortCalls();
+    }
+
+    /**
+     * Download the file synchronously, resuming a previous partial download if possible.
+     * Conditional headers of the request only apply to the first request of a fresh download.
+     *
+     * @throws NotModifiedException when the conditional request is answered with 304.
+     */
+    @NonNull
+    public File execute() throws IOException {
+        if (loadMeta()) {
+            try {
+                runSegments(null);
+                return complete();
+            } catch (RestartException e) {
+                // Remote file has been changed, start again from scratch.
+                reset();
+            }
+        } else {
+            reset();
+        }
+        return fresh();
+    }
+
+    private File fresh() throws IOException {
+        Response response = newCall(request.newBuilder().header("Range", "bytes=0-").build()).execute();
+        if (response.code() == 416) {
+            response.close();
+            response = newCall(request).execute();
+        }
+        if (response.code() == 304) {
+            response.close();
+            throw new NotModifiedException();
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            response.close();
+            throw new ProtocolException("Unexpected response code " + response.code());
+        }
+
+        boolean ranged;
+        if (response.code() == 206) {
+            length = parseTotal(response.header("Content-Range"));
+            ranged = true;
+        } else {
+            length = response.body().contentLength();
+            ranged = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+        }
+        validator = parseValidator(response);
+
+        segments = new ArrayList<>();
+        int count = ranged && length > 0 ? (int) Math.min(segmentCount, Math.max(1, length / MIN_SEGMENT_SIZE)) : 1;
+        long size = length > 0 ? length / count : -1;
+        for (int i = 0; i < count; i++) {
+            long start = i * Math.max(size, 0);
+            long end = length < 0 ? -1 : (i == count - 1 ? length - 1 : start + size - 1);
+            segments.add(new Segment(start, end));
+        }
+
+        preallocate();
+        saveMeta();
+        runSegments(response);
+        return complete();
+    }
+
+    /**
+     * Run every pending segment, the first one on the calling thread and the rest in parallel.
+     * The response of the first request is reused by the first segment when available.
+     */
+    private void runSegments(@Nullable Response firstResponse) throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        Segment first = null;
+        for (Segment segment : segments) {
+            if (segment.isComplete()) {
+                continue;
+            }
+            if (first == null) {
+                first = segment;
+                continue;
+            }
+            futures.add(TransferExecutor.get().submit(() -> {
+                runSegment(segment, null);
+                return null;
+            }));
+        }
+
+        IOException error = null;
+        if (first != null) {
+            try {
+                runSegment(first, firstResponse);
+            } catch (IOException e) {
+                error = e;
+                abortCalls();
+            }
+        } else if (firstResponse != null) {
+            firstResponse.close();
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    abortCalls();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                error = new IOException("Download interrupted", e);
+            }
+        }
+        saveMeta();
+
+        if (error != null) {
+            throw error;
+        }
+        if (cancelled) {
+            throw new IOException("Canceled");
+        }
+    }
+
+    private void runSegment(Segment segment, @Nullable Response response) throws IOException {
+        if (response == null) {
+            Request.Builder builder = request.newBuilder()
+                    .removeHeader("If-None-Match")
+                    .removeHeader("If-Modified-Since")
+                    .header("Range", "bytes=" + (segment.start + segment.done) + "-" + (segment.end >= 0 ? segment.end : ""));
+            if (validator != null) {
+                builder.header("If-Range", validator);
+            }
+            response = newCall(builder.build()).execute();
+            if (response.code() != 206) {
+                response.close();
+                if (response.isSuccessful()) {
+                    throw new RestartException();
+                }
+                throw new ProtocolException("Unexpected response code " + response.code());
+            }
+        }
+
+        try (ResponseBody body = response.body()) {
+            if (body == null) {
+                throw new ProtocolException("Empty response body");
+            }
+            transfer(body.source(), segment);
+        }
+    }
+
+    private void transfer(BufferedSource source, Segment segment) throws IOException {
+        diskWriter.write(source, partialFile, segment.start + segment.done, segment.remaining(), -1, bytes -> {
+            advance(segment, bytes);
+            if (cancelled) {
+                throw new IOException("Canceled");
+            }
+        });
+
+        if (cancelled) {
+            throw new IOException("Canceled");
+        }
+        if (segment.end >= 0 && !segment.isComplete()) {
+            throw new ProtocolException("Unexpected end of stream");
+        }
+        if (segment.end < 0) {
+            segment.end = segment.start + segment.done - 1;
+            segment.finished = true;
+        }
+    }
+
+    private void advance(Segment segment, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        segment.done += bytes;
+        long total = downloaded.addAndGet(bytes);
+        if (progressCallback != null) {
+            progressCallback.onProgress(total, length);
+        }
+        if (total - lastSavedAt >= META_INTERVAL) {
+            lastSavedAt = total;
+            saveMeta();
+        }
+    }
+
+    private File complete() throws IOException {
+        for (Segment segment : segments) {
+            if (!segment.isComplete()) {
+                throw new ProtocolException("Incomplete download");
+            }
+        }
+        if (length >= 0 && partialFile.length() != length) {
+            throw new ProtocolException("Downloaded size does not match");
+        }
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Unable to replace " + target);
+        }
+        if (!partialFile.renameTo(target)) {
+            throw new IOException("Unable to move " + partialFile + " to " + target);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        metaFile.delete();
+        return target;
+    }
+
+    private void preallocate() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(partialFile, "rw")) {
+            file.setLength(Math.max(length, 0));
+        }
+    }
+
+    private Call newCall(Request request) throws IOException {
+        // Ranges refer to the encoded body, so ask for the file as it is.
+        Call call = client.newCall(request.newBuilder().header("Accept-Encoding", "identity").build());
+        synchronized (calls) {
+            if (cancelled) {
+                throw new IOException("Canceled");
+            }
+            calls.add(call);
+        }
+        return call;
+    }
+
+    private void abortCalls() {
+        synchronized (calls) {
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+    }
+
+    private boolean loadMeta() {
+        if (!metaFile.exists() || !partialFile.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(metaFile)) {
+            properties.load(in);
+            if (!request.url().toString().equals(properties.getProperty("url"))) {
+                return false;
+            }
+            validator = properties.getProperty("validator");
+            if (validator == null) {
+                return false;
+            }
+            length = Long.parseLong(properties.getProperty("length"));
+            int count = Integer.parseInt(properties.getProperty("segments"));
+            segments = new ArrayList<>();
+            long done = 0;
+            for (int i = 0; i < count; i++) {
+                String[] values = properties.getProperty("segment." + i).split(",");
+                Segment segment = new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]));
+                segment.done = Long.parseLong(values[2]);
+                segments.add(segment);
+                done += segment.done;
+            }
+            downloaded.set(done);
+            lastSavedAt = done;
+            return length > 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private synchronized void saveMeta() {
+        if (validator == null || length <= 0) {
+            // Without a validator a partial file can not be resumed safely.
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("url", request.url().toString());
+        properties.setProperty("validator", validator);
+        properties.setProperty("length", String.valueOf(length));
+        properties.setProperty("segments", String.valueOf(segments.size()));
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            properties.setProperty("segment." + i, segment.start + "," + segment.end + "," + segment.done);
+        }
+        try (OutputStream out = new FileOutputStream(metaFile, false)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void reset() {
+        //noinspection ResultOfMethodCallIgnored
+        partialFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        metaFile.delete();
+        synchronized (calls) {
+            calls.clear();
+        }
+        segments = new ArrayList<>();
+        validator = null;
+        length = -1;
+        downloaded.set(0);
+        lastSavedAt = 0;
+    }
+
+    @Nullable
+    private static String parseValidator(Response response) {
+        String eTag = response.header("ETag");
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return eTag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    private static long parseTotal(@Nullable String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int index = contentRange.lastIndexOf('/');
+        try {
+            return index == -1 ? -1 : Long.parseLong(contentRange.substring(index + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static class Segment {
+        final long start;
+        volatile long end;
+        volatile long done;
+        volatile boolean finished;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long remaining() {
+            return end < 0 ? -1 : end - start + 1 - done;
+        }
+
+        boolean isComplete() {
+            return finished || (end >= 0 && remaining() <= 0);
+        }
+    }
+
+    /**
+     * Thrown when a conditional request of a fresh download is answered with 304, the caller's copy is still valid.
+     */
+    public static class NotModifiedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        NotModifiedException() {
+            super("Remote file has not been modified");
+        }
+    }
+
+    private static class RestartException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RestartException() {
+            super("Remote file has been changed");
+        }
+    }
+}
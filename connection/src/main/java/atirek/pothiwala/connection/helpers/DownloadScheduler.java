@@ -0,0 +1,283 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import atirek.pothiwala.connection.extensions.Priority;
+
+/**
+ * Library-wide scheduler for downloads with global and per-host concurrency limits.
+ * Queued tasks start by priority and then in order of arrival, and can be paused, resumed or cancelled by tag.
+ * Workers come from one shared pool and completion is delivered through one callback executor,
+ * so no thread is left blocked waiting for another.
+ */
+public class DownloadScheduler {
+
+    public enum State {
+        queued,
+        running,
+        paused,
+        cancelled,
+        finished
+    }
+
+    /**
+     * A unit of work of the scheduler, {@link #execute()} runs on a worker thread
+     * and {@link #onComplete(Exception)} on the callback executor.
+     */
+    public static abstract class Task {
+        private final String tag;
+        private final String host;
+        private final String url;
+        private final Priority priority;
+        private long sequence;
+        private volatile State state = State.queued;
+
+        public Task(@NonNull String tag, @NonNull String host, @NonNull String url, @NonNull Priority priority) {
+            this.tag = tag;
+            this.host = host;
+            this.url = url;
+            this.priority = priority;
+        }
+
+        /**
+         * Run the download, it may be called again after the task has been paused and resumed.
+         */
+        protected abstract void execute() throws Exception;
+
+        /**
+         * Abort a running execution, called from any thread.
+         */
+        protected abstract void abort();
+
+        /**
+         * Called once when the task is finished, error is null on success
+         * and a {@link CancellationException} when the task has been cancelled.
+         */
+        protected abstract void onComplete(@Nullable Exception error);
+
+        @NonNull
+        public String getTag() {
+            return tag;
+        }
+
+        @NonNull
+        public String getHost() {
+            return host;
+        }
+
+        @NonNull
+        public String getUrl() {
+            return url;
+        }
+
+        @NonNull
+        public Priority getPriority() {
+            return priority;
+        }
+
+        @NonNull
+        public State getState() {
+            return state;
+        }
+    }
+
+    private static final DownloadScheduler INSTANCE = new DownloadScheduler();
+
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final List<Task> pending = new ArrayList<>();
+    private final List<Task> running = new ArrayList<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+
+    private Executor callbackExecutor = MainThreadExecutor.get();
+    private int maxConcurrent = 4;
+    private int maxPerHost = 2;
+    private long sequence;
+
+    @NonNull
+    public static DownloadScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set maximum number of downloads running at the same time, default is 4.
+     * Fewer run on a slow network, see {@link NetworkQualityEstimator#adjustParallelism(int)}.
+     */
+    public synchronized DownloadScheduler setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        promote();
+        return this;
+    }
+
+    /**
+     * Set maximum number of downloads running at the same time for one host, default is 2.
+     */
+    public synchronized DownloadScheduler setMaxPerHost(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        promote();
+        return this;
+    }
+
+    /**
+     * Set executor on which tasks are completed, default is the main thread.
+     */
+    public synchronized DownloadScheduler setCallbackExecutor(@NonNull Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    public synchronized void enqueue(@NonNull Task task) {
+        task.sequence = sequence++;
+        task.state = State.queued;
+        pending.add(task);
+        promote();
+    }
+
+    /**
+     * Snapshot of tasks which are waiting to run, including paused ones, in the order they will start.
+     */
+    @NonNull
+    public synchronized List<Task> getPending() {
+        List<Task> tasks = new ArrayList<>(pending);
+        sort(tasks);
+        return tasks;
+    }
+
+    /**
+     * Snapshot of tasks which are running.
+     */
+    @NonNull
+    public synchronized List<Task> getRunning() {
+        return new ArrayList<>(running);
+    }
+
+    /**
+     * Pause every queued or running task with the tag, a running task is aborted and will start again when resumed.
+     */
+    public synchronized void pause(@NonNull String tag) {
+        for (Task task : pending) {
+            if (task.tag.equals(tag) && task.state == State.queued) {
+                task.state = State.paused;
+            }
+        }
+        for (Task task : running) {
+            if (task.tag.equals(tag)) {
+                task.state = State.paused;
+                task.abort();
+            }
+        }
+    }
+
+    /**
+     * Resume every paused task with the tag.
+     */
+    public synchronized void resume(@NonNull String tag) {
+        for (Task task : pending) {
+            if (task.tag.equals(tag) && task.state == State.paused) {
+                task.state = State.queued;
+            }
+        }
+        promote();
+    }
+
+    /**
+     * Cancel every task with the tag.
+     */
+    public synchronized void cancel(@NonNull String tag) {
+        for (Task task : new ArrayList<>(pending)) {
+            if (task.tag.equals(tag)) {
+                cancel(task);
+            }
+        }
+        for (Task task : running) {
+            if (task.tag.equals(tag)) {
+                cancel(task);
+            }
+        }
+    }
+
+    /**
+     * Cancel a single task.
+     */
+    public synchronized void cancel(@NonNull Task task) {
+        if (pending.remove(task)) {
+            task.state = State.cancelled;
+            complete(task, new CancellationException());
+        } else if (running.contains(task)) {
+            task.state = State.cancelled;
+            task.abort();
+        }
+    }
+
+    private void promote() {
+        int maxConcurrent = NetworkQualityEstimator.get().adjustParallelism(this.maxConcurrent);
+        if (pending.isEmpty() || running.size() >= maxConcurrent) {
+            return;
+        }
+        sort(pending);
+        for (Task task : new ArrayList<>(pending)) {
+            if (running.size() >= maxConcurrent) {
+                return;
+            }
+            Integer hostCount = runningPerHost.get(task.host);
+            if (task.state != State.queued || (hostCount != null && hostCount >= maxPerHost)) {
+                continue;
+            }
+            pending.remove(task);
+            running.add(task);
+            runningPerHost.put(task.host, hostCount == null ? 1 : hostCount + 1);
+            task.state = State.running;
+            workers.execute(() -> run(task));
+        }
+    }
+
+    private void run(Task task) {
+        Exception error = null;
+        try {
+            task.execute();
+        } catch (Exception e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            running.remove(task);
+            Integer hostCount = runningPerHost.get(task.host);
+            if (hostCount != null && hostCount > 1) {
+                runningPerHost.put(task.host, hostCount - 1);
+            } else {
+                runningPerHost.remove(task.host);
+            }
+
+            if (task.state == State.paused && error != null) {
+                pending.add(task);
+            } else if (task.state == State.cancelled && error != null) {
+                complete(task, new CancellationException());
+            } else {
+                task.state = State.finished;
+                complete(task, error);
+            }
+            promote();
+        }
+    }
+
+    private void complete(Task task, @Nullable Exception error) {
+        callbackExecutor.execute(() -> task.onComplete(error));
+    }
+
+    private static void sort(List<Task> tasks) {
+        Collections.sort(tasks, (first, second) -> {
+            int compare = first.priority.compareTo(second.priority);
+            return compare != 0 ? compare : Long.compare(first.sequence, second.sequence);
+        });
+    }
+}
@@ -0,0 +1,361 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.content.Context;
+import android.os.Environment;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * Managed directory of downloads keyed by URL, so the same URL is kept once and revalidated instead of transferred again.
+ * Every file is stored with its validator (ETag or Last-Modified), its length and a SHA-256 digest which is checked
+ * before a stored copy is handed out. The store is bounded by bytes and evicts the least recently used files.
+ */
+public class DownloadStore {
+
+    public static class Entry {
+        private final String url;
+        private final File file;
+        private final String validator;
+        private final long length;
+        private final String digest;
+        // Sequence number of the last use, unique within the store so the order of eviction is stable.
+        private long access;
+
+        Entry(@NonNull String url, @NonNull File file, @Nullable String validator, long length, @NonNull String digest, long access) {
+            this.url = url;
+            this.file = file;
+            this.validator = validator;
+            this.length = length;
+            this.digest = digest;
+            this.access = access;
+        }
+
+        @NonNull
+        public String getUrl() {
+            return url;
+        }
+
+        @NonNull
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * ETag or Last-Modified of the stored response, null when the server sent neither and the file can not be revalidated.
+         */
+        @Nullable
+        public String getValidator() {
+            return validator;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+
+    private static final String INDEX = "index.properties";
+    private static final Map<Request, String> revalidations = new WeakHashMap<>();
+    private static volatile DownloadStore instance;
+
+    private final File directory;
+    private final File indexFile;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long maxSize = 256 * 1024 * 1024;
+    private long accessCounter;
+
+    DownloadStore(@NonNull File directory) {
+        this.directory = directory;
+        this.indexFile = new File(directory, INDEX);
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+        load();
+    }
+
+    @NonNull
+    public static DownloadStore get(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (DownloadStore.class) {
+                if (instance == null) {
+                    File downloads = context.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS);
+                    instance = new DownloadStore(new File(downloads != null ? downloads : context.getFilesDir(), "store"));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Set maximum size of stored files in bytes, default is 256 MB. Least recently used files are evicted first.
+     */
+    public DownloadStore setMaxSize(long maxSize) {
+        synchronized (this) {
+            this.maxSize = Math.max(0, maxSize);
+            evict(null);
+        }
+        return this;
+    }
+
+    /**
+     * Get the stored copy of the URL, null when there is none or its file is missing or truncated.
+     * Use {@link #verify(Entry)} before handing the file out.
+     */
+    @Nullable
+    public synchronized Entry get(@NonNull String url) {
+        Entry entry = entries.get(key(url));
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.file.isFile() || entry.file.length() != entry.length) {
+            remove(entry);
+            save();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Check the digest of a stored file and mark it as recently used, a corrupted file is removed from the store.
+     */
+    public boolean verify(@NonNull Entry entry) {
+        boolean intact;
+        try {
+            intact = entry.file.length() == entry.length && entry.digest.equals(digest(entry.file));
+        } catch (IOException e) {
+            intact = false;
+        }
+        synchronized (this) {
+            if (entries.get(key(entry.url)) != entry) {
+                return intact;
+            }
+            if (intact) {
+                entry.access = accessCounter++;
+            } else {
+                remove(entry);
+            }
+            save();
+        }
+        return intact;
+    }
+
+    /**
+     * Get a temporary file next to the store to download the URL into, before it is stored with {@link #put}.
+     */
+    @NonNull
+    public File createTempFile(@NonNull String url) {
+        return new File(directory, key(url) + "." + System.nanoTime() + ".tmp");
+    }
+
+    /**
+     * Move a completed download into the store, replacing an older copy of the URL.
+     *
+     * @param validator ETag or Last-Modified of the response, see {@link #validatorOf(Response)}.
+     */
+    @NonNull
+    public Entry put(@NonNull String url, @NonNull File download, @Nullable String validator) throws IOException {
+        String digest = digest(download);
+        long length = download.length();
+        String key = key(url);
+        File file = new File(directory, key + extension(url));
+        synchronized (this) {
+            if (!download.renameTo(file)) {
+                throw new IOException("Unable to move download to " + file);
+            }
+            Entry entry = new Entry(url, file, validator, length, digest, accessCounter++);
+            entries.remove(key);
+            entries.put(key, entry);
+            evict(entry);
+            save();
+            return entry;
+        }
+    }
+
+    public synchronized void remove(@NonNull String url) {
+        Entry entry = entries.get(key(url));
+        if (entry != null) {
+            remove(entry);
+            save();
+        }
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            remove(entry);
+        }
+        save();
+    }
+
+    /**
+     * Total size of stored files in bytes.
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.length;
+        }
+        return size;
+    }
+
+    /**
+     * Send the request conditionally on the stored validator, so an unchanged file is answered with 304.
+     * Note: Only requests of clients from {@link ClientRegistry} are revalidated.
+     */
+    public static void revalidate(@NonNull Request request, @NonNull String validator) {
+        synchronized (revalidations) {
+            revalidations.put(request, validator);
+        }
+    }
+
+    @Nullable
+    static String revalidationOf(@NonNull Request request) {
+        synchronized (revalidations) {
+            return revalidations.remove(request);
+        }
+    }
+
+    /**
+     * Add the conditional header which matches the kind of validator, If-None-Match for an ETag and If-Modified-Since otherwise.
+     */
+    @NonNull
+    public static Request.Builder conditional(@NonNull Request.Builder builder, @NonNull String validator) {
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            return builder.header("If-None-Match", validator);
+        }
+        return builder.header("If-Modified-Since", validator);
+    }
+
+    /**
+     * Validator of a response to revalidate it later, ETag is preferred over Last-Modified.
+     */
+    @Nullable
+    public static String validatorOf(@NonNull Response response) {
+        String eTag = response.header("ETag");
+        return eTag != null ? eTag : response.header("Last-Modified");
+    }
+
+    private void evict(@Nullable Entry keep) {
+        long size = size();
+        if (size <= maxSize) {
+            return;
+        }
+        List<Entry> candidates = new ArrayList<>(entries.values());
+        Collections.sort(candidates, (first, second) -> Long.compare(first.access, second.access));
+        for (Entry entry : candidates) {
+            if (size <= maxSize) {
+                return;
+            }
+            if (entry != keep) {
+                size -= entry.length;
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(key(entry.url));
+        //noinspection ResultOfMethodCallIgnored
+        entry.file.delete();
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(indexFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        List<Entry> loaded = new ArrayList<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.endsWith(".url")) {
+                continue;
+            }
+            String key = name.substring(0, name.length() - 4);
+            try {
+                String url = properties.getProperty(key + ".url");
+                loaded.add(new Entry(url, new File(directory, key + extension(url)), properties.getProperty(key + ".validator"),
+                        Long.parseLong(properties.getProperty(key + ".length")), properties.getProperty(key + ".digest"),
+                        Long.parseLong(properties.getProperty(key + ".accessed"))));
+            } catch (Exception e) {
+                // Skip a damaged record, its file is left for the next put of the URL.
+            }
+        }
+        Collections.sort(loaded, (first, second) -> Long.compare(first.access, second.access));
+        for (Entry entry : loaded) {
+            entries.put(key(entry.url), entry);
+            accessCounter = Math.max(accessCounter, entry.access + 1);
+        }
+    }
+
+    private void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> record : entries.entrySet()) {
+            String key = record.getKey();
+            Entry entry = record.getValue();
+            properties.setProperty(key + ".url", entry.url);
+            if (entry.validator != null) {
+                properties.setProperty(key + ".validator", entry.validator);
+            }
+            properties.setProperty(key + ".length", String.valueOf(entry.length));
+            properties.setProperty(key + ".digest", entry.digest);
+            properties.setProperty(key + ".accessed", String.valueOf(entry.access));
+        }
+        try (OutputStream out = new FileOutputStream(indexFile, false)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String key(String url) {
+        return ByteString.encodeUtf8(url).sha1().hex();
+    }
+
+    /**
+     * Extension of the last path segment, kept so stored files still open with the right app.
+     */
+    private static String extension(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return "";
+        }
+        List<String> segments = httpUrl.pathSegments();
+        String name = segments.get(segments.size() - 1);
+        int dot = name.lastIndexOf('.');
+        String extension = dot == -1 ? "" : name.substring(dot + 1);
+        return extension.isEmpty() || extension.length() > 8 || !extension.matches("[A-Za-z0-9]+") ? "" : "." + extension;
+    }
+
+    private static String digest(File file) throws IOException {
+        HashingSink sink = HashingSink.sha256(Okio.blackhole());
+        try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+            source.readAll(sink);
+        }
+        return sink.hash().hex();
+    }
+}
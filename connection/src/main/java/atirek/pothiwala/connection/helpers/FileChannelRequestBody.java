@@ -0,0 +1,88 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import atirek.pothiwala.connection.extensions.ProgressListener;
+import atirek.pothiwala.connection.extensions.ProgressUpdater;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Base of upload bodies backed by a file channel, data is read straight into the segments of the sink
+ * in 64 KB steps without intermediate copies, and progress is reported while it is written.
+ */
+public abstract class FileChannelRequestBody extends RequestBody {
+
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    private final MediaType mediaType;
+    private ProgressListener listener;
+
+    protected FileChannelRequestBody(@Nullable MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public void setListener(@Nullable ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    /**
+     * Channel positioned at the start of the data for a new write.
+     */
+    @NonNull
+    protected abstract FileChannel openChannel() throws IOException;
+
+    /**
+     * Called once a write is over, complete is false when it failed.
+     */
+    protected abstract void closeChannel(@NonNull FileChannel channel, boolean complete) throws IOException;
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        long length = contentLength();
+        ProgressUpdater updater = new ProgressUpdater(listener, MainThreadExecutor.get());
+        FileChannel channel = openChannel();
+        long start = System.nanoTime();
+        boolean complete = false;
+        try {
+            // The source is not closed, so the channel stays usable for the next write.
+            BufferedSource source = Okio.buffer(Okio.source(Channels.newInputStream(channel)));
+            Buffer buffer = sink.buffer();
+            long uploaded = 0;
+            while (length < 0 || uploaded < length) {
+                long step = length < 0 ? SEGMENT_SIZE : Math.min(SEGMENT_SIZE, length - uploaded);
+                // A read returns at most one 8 KB segment, so the step is buffered first.
+                source.request(step);
+                long read = source.read(buffer, step);
+                if (read == -1) {
+                    break;
+                }
+                sink.emitCompleteSegments();
+                uploaded += read;
+
+                // update progress on UI thread
+                updater.update(uploaded, length);
+            }
+            sink.flush();
+            NetworkQualityEstimator.get().recordUpstream(uploaded, System.nanoTime() - start);
+            updater.complete();
+            complete = true;
+        } finally {
+            closeChannel(channel, complete);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Gzip compressed copy of a body, meant for in-memory payloads such as large JSON.
+ * The body is compressed once on first use, so its length is known and retries send the same bytes.
+ * Content-Encoding is added by {@link CompressionInterceptor} of the clients of {@link ClientRegistry},
+ * any other client has to declare {@link RequestCreator#GZIP_HEADER} on the method.
+ */
+public class GzipRequestBody extends RequestBody {
+
+    private final RequestBody body;
+    private Buffer compressed;
+    private long originalLength;
+    private long compressNanos;
+
+    public GzipRequestBody(@NonNull RequestBody body) {
+        this.body = body;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return body.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return compressed().size();
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        Buffer compressed = compressed();
+        sink.write(compressed, compressed.size());
+    }
+
+    /**
+     * Size of the body before compression, known once it has been compressed.
+     */
+    long getOriginalLength() {
+        return originalLength;
+    }
+
+    long getCompressNanos() {
+        return compressNanos;
+    }
+
+    private synchronized Buffer compressed() throws IOException {
+        if (compressed == null) {
+            long start = System.nanoTime();
+            Buffer buffer = new Buffer();
+            Buffer original = new Buffer();
+            body.writeTo(original);
+            originalLength = original.size();
+            try (BufferedSink gzip = Okio.buffer(new GzipSink(buffer))) {
+                gzip.writeAll(original);
+            }
+            compressNanos = System.nanoTime() - start;
+            compressed = buffer;
+        }
+        // A copy is written, so the compressed bytes can be sent again.
+        return compressed.clone();
+    }
+}
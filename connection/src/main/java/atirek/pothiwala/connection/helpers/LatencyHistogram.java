@@ -0,0 +1,74 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import atirek.pothiwala.connection.extensions.PhaseStats;
+
+/**
+ * Lock-free histogram of latencies with logarithmic buckets, each bucket is 10% wider than the previous one,
+ * so percentiles are accurate within 10% while recording is a single atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int BUCKETS = 240;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int index = (int) Math.min(BUCKETS - 1, Math.log(1 + micros) / LOG_GROWTH);
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // Retry until the maximum is updated.
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Latency in milliseconds below which the percentile of recorded values fall, 0 when empty.
+     */
+    public double percentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long inBucket = buckets.get(i);
+            if (seen + inBucket >= rank) {
+                // Interpolate linearly within the bucket.
+                double lower = Math.pow(GROWTH, i) - 1;
+                double upper = Math.pow(GROWTH, i + 1) - 1;
+                double micros = lower + (upper - lower) * (rank - seen) / inBucket;
+                return Math.min(micros, maxMicros.get()) / 1000.0;
+            }
+            seen += inBucket;
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    @NonNull
+    public PhaseStats toStats() {
+        long total = count.get();
+        return new PhaseStats(total,
+                total == 0 ? 0 : sumMicros.get() / 1000.0 / total,
+                percentile(50), percentile(95), percentile(99),
+                maxMicros.get() / 1000.0);
+    }
+}
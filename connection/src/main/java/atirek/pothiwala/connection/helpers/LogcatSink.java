@@ -0,0 +1,18 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import atirek.pothiwala.connection.extensions.TraceSink;
+
+/**
+ * Writes traces to your Android Studio LOGCAT.
+ */
+public class LogcatSink implements TraceSink {
+
+    @Override
+    public void onTrace(@NonNull String tag, @NonNull String message) {
+        Log.d(tag + ">>", message);
+    }
+}
@@ -0,0 +1,45 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor which posts to the main thread through one shared handler.
+ */
+public class MainThreadExecutor implements Executor {
+
+    private static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private MainThreadExecutor() {
+    }
+
+    @NonNull
+    public static MainThreadExecutor get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        handler.post(command);
+    }
+
+    /**
+     * Run the command on the main thread after a delay.
+     */
+    public void executeDelayed(@NonNull Runnable command, long delayMillis) {
+        handler.postDelayed(command, delayMillis);
+    }
+
+    /**
+     * Remove a pending command which has not run yet.
+     */
+    public void remove(@NonNull Runnable command) {
+        handler.removeCallbacks(command);
+    }
+}
@@ -0,0 +1,125 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import atirek.pothiwala.connection.extensions.Phase;
+import okhttp3.Call;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Listens to a single call and records duration of its phases into {@link ConnectorMetrics}.
+ */
+class MetricsListener extends ConnectionTracker {
+
+    private String tag;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestEnd;
+    private long responseHeadersEnd;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+        tag = ConnectorMetrics.tagOf(call.request());
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        record(Phase.dns, dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        super.connectStart(call, inetSocketAddress, proxy);
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+                              @Nullable Protocol protocol, @NonNull IOException ioe) {
+        // Addresses may be stale after a network change, resolve them again on the next call.
+        ClientRegistry.getDns().evict(call.request().url().host());
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+        NetworkQualityEstimator.get().recordTransportRtt(secureConnectStart - connectStart);
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        record(Phase.tls, secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        record(Phase.connect, connectStart);
+        if (secureConnectStart < connectStart) {
+            // Plain connection, its whole duration is the TCP handshake.
+            NetworkQualityEstimator.get().recordTransportRtt(System.nanoTime() - connectStart);
+        }
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        record(Phase.firstByte, requestEnd);
+        if (requestEnd > 0) {
+            NetworkQualityEstimator.get().recordHttpRtt(System.nanoTime() - requestEnd);
+        }
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        responseHeadersEnd = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        record(Phase.transfer, responseHeadersEnd);
+        ConnectorMetrics.responseRead(call.request(), System.nanoTime());
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        record(Phase.total, callStart);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        record(Phase.total, callStart);
+    }
+
+    private void record(Phase phase, long start) {
+        if (tag != null && start > 0) {
+            ConnectorMetrics.record(tag, phase, System.nanoTime() - start);
+        }
+    }
+}
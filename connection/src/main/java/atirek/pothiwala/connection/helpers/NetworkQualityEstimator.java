@@ -0,0 +1,259 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.NetworkQuality;
+
+/**
+ * Estimates round trip time and throughput of the current network from real traffic, with the link bandwidth
+ * reported by {@link ConnectivityMonitor} as a prior until enough bytes have been measured.
+ * RTT is learned from the calls of the shared client, downstream throughput from downloads written to disk
+ * and upstream throughput from file uploads. RTT is the median of recent samples, so one slow endpoint does not
+ * classify the network, and samples older than 5 minutes age out. Throughput is smoothed with an exponentially
+ * weighted moving average. Every sample is dropped when the device switches networks.
+ * <p>
+ * The quality class is used to adapt timeouts of clients with {@link ClientConfig#setAdaptiveTimeouts(boolean)},
+ * download segments and the parallelism of downloads and uploads.
+ */
+public class NetworkQualityEstimator {
+
+    private static final NetworkQualityEstimator INSTANCE = new NetworkQualityEstimator();
+
+    private static final double WEIGHT = 0.3;
+    private static final long MIN_THROUGHPUT_BYTES = 64 * 1024;
+    private static final long MIN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int RTT_SAMPLES = 16;
+    private static final long RTT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private volatile boolean enabled = true;
+    private final RttWindow httpRtt = new RttWindow();
+    private final RttWindow transportRtt = new RttWindow();
+    private double downstreamKbps = -1;
+    private double upstreamKbps = -1;
+    private int linkDownstreamKbps = -1;
+    private int linkUpstreamKbps = -1;
+
+    NetworkQualityEstimator() {
+    }
+
+    @NonNull
+    public static NetworkQualityEstimator get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enable adaptation of timeouts, segments and parallelism to the estimated quality. Enabled by default.
+     */
+    public NetworkQualityEstimator setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Time from the request being sent to the first byte of the response, which includes server time.
+     */
+    public synchronized void recordHttpRtt(long nanos) {
+        httpRtt.add(nanos / 1e6, System.nanoTime());
+    }
+
+    /**
+     * Duration of a TCP handshake, which is one round trip.
+     */
+    public synchronized void recordTransportRtt(long nanos) {
+        transportRtt.add(nanos / 1e6, System.nanoTime());
+    }
+
+    /**
+     * Bytes received in one transfer, transfers too small to leave TCP slow start are ignored.
+     */
+    public synchronized void recordDownstream(long bytes, long nanos) {
+        if (bytes >= MIN_THROUGHPUT_BYTES && nanos > 0) {
+            downstreamKbps = average(downstreamKbps, kbps(bytes, nanos));
+        }
+    }
+
+    /**
+     * Bytes sent in one transfer, transfers too small to leave TCP slow start are ignored.
+     */
+    public synchronized void recordUpstream(long bytes, long nanos) {
+        if (bytes >= MIN_THROUGHPUT_BYTES && nanos > 0) {
+            upstreamKbps = average(upstreamKbps, kbps(bytes, nanos));
+        }
+    }
+
+    /**
+     * Link bandwidth of the default network from its NetworkCapabilities, 0 or less when unknown.
+     */
+    public synchronized void setLinkBandwidth(int downstreamKbps, int upstreamKbps) {
+        this.linkDownstreamKbps = downstreamKbps;
+        this.linkUpstreamKbps = upstreamKbps;
+    }
+
+    /**
+     * Drop every sample, called when the device switches networks.
+     */
+    public synchronized void reset() {
+        httpRtt.clear();
+        transportRtt.clear();
+        downstreamKbps = -1;
+        upstreamKbps = -1;
+        linkDownstreamKbps = -1;
+        linkUpstreamKbps = -1;
+    }
+
+    /**
+     * Round trip time in milliseconds, the transport RTT when known and the HTTP RTT otherwise, -1 when unknown.
+     */
+    public synchronized long getRttMillis() {
+        long now = System.nanoTime();
+        double transport = transportRtt.median(now);
+        return Math.round(transport >= 0 ? transport : httpRtt.median(now));
+    }
+
+    public synchronized long getHttpRttMillis() {
+        return Math.round(httpRtt.median(System.nanoTime()));
+    }
+
+    /**
+     * Measured downstream throughput, the link bandwidth until a download has been measured, -1 when unknown.
+     */
+    public synchronized long getDownstreamKbps() {
+        return Math.round(downstreamKbps >= 0 ? downstreamKbps : linkDownstreamKbps > 0 ? linkDownstreamKbps : -1);
+    }
+
+    /**
+     * Measured upstream throughput, the link bandwidth until an upload has been measured, -1 when unknown.
+     */
+    public synchronized long getUpstreamKbps() {
+        return Math.round(upstreamKbps >= 0 ? upstreamKbps : linkUpstreamKbps > 0 ? linkUpstreamKbps : -1);
+    }
+
+    /**
+     * The worse of the classes of RTT and downstream throughput, thresholds follow the effective connection
+     * types of browsers: poor is 2G, moderate is 3G, good is 4G and excellent is a fast Wi-Fi or 5G link.
+     * Transport RTT is used when known, as HTTP RTT also includes the time the server takes.
+     */
+    @NonNull
+    public synchronized NetworkQuality getQuality() {
+        NetworkQuality quality = NetworkQuality.unknown;
+        long now = System.nanoTime();
+        double transportRttMillis = transportRtt.median(now);
+        double httpRttMillis = httpRtt.median(now);
+        if (transportRttMillis >= 0) {
+            quality = worse(quality, transportRttMillis >= 1280 ? NetworkQuality.poor
+                    : transportRttMillis >= 200 ? NetworkQuality.moderate
+                    : transportRttMillis >= 75 ? NetworkQuality.good
+                    : NetworkQuality.excellent);
+        } else if (httpRttMillis >= 0) {
+            quality = worse(quality, httpRttMillis >= 1400 ? NetworkQuality.poor
+                    : httpRttMillis >= 270 ? NetworkQuality.moderate
+                    : httpRttMillis >= 100 ? NetworkQuality.good
+                    : NetworkQuality.excellent);
+        }
+        long kbps = getDownstreamKbps();
+        if (kbps >= 0) {
+            quality = worse(quality, kbps < 150 ? NetworkQuality.poor
+                    : kbps < 700 ? NetworkQuality.moderate
+                    : kbps < 5000 ? NetworkQuality.good
+                    : NetworkQuality.excellent);
+        }
+        return quality;
+    }
+
+    /**
+     * Number of parallel transfers for the quality, never above max: one on a poor network and half on a moderate one.
+     */
+    public int adjustParallelism(int max) {
+        if (!enabled) {
+            return max;
+        }
+        switch (getQuality()) {
+            case poor:
+                return 1;
+            case moderate:
+                return Math.max(1, (max + 1) / 2);
+            default:
+                return max;
+        }
+    }
+
+    /**
+     * Timeout for the quality, never above the configured one: a quarter of it on an excellent network,
+     * half on a good one and all of it otherwise, but at least 10 seconds.
+     */
+    public long adjustTimeout(long configuredMillis) {
+        if (!enabled || configuredMillis <= 0) {
+            return configuredMillis;
+        }
+        switch (getQuality()) {
+            case excellent:
+                return Math.min(configuredMillis, Math.max(MIN_TIMEOUT_MILLIS, configuredMillis / 4));
+            case good:
+                return Math.min(configuredMillis, Math.max(MIN_TIMEOUT_MILLIS, configuredMillis / 2));
+            default:
+                return configuredMillis;
+        }
+    }
+
+    private static double average(double current, double sample) {
+        return current < 0 ? sample : current + WEIGHT * (sample - current);
+    }
+
+    private static double kbps(long bytes, long nanos) {
+        return bytes * 8 * 1e6 / nanos;
+    }
+
+    private static NetworkQuality worse(NetworkQuality first, NetworkQuality second) {
+        if (first == NetworkQuality.unknown) {
+            return second;
+        }
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    /**
+     * Latest RTT samples, guarded by the estimator.
+     */
+    private static class RttWindow {
+        private final double[] values = new double[RTT_SAMPLES];
+        private final long[] times = new long[RTT_SAMPLES];
+        private int size;
+        private int next;
+
+        void add(double millis, long now) {
+            values[next] = millis;
+            times[next] = now;
+            next = (next + 1) % RTT_SAMPLES;
+            size = Math.min(size + 1, RTT_SAMPLES);
+        }
+
+        void clear() {
+            size = 0;
+            next = 0;
+        }
+
+        /**
+         * Median of the samples which have not aged out, -1 when there is none.
+         */
+        double median(long now) {
+            double[] recent = new double[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (now - times[i] <= RTT_MAX_AGE_NANOS) {
+                    recent[count++] = values[i];
+                }
+            }
+            if (count == 0) {
+                return -1;
+            }
+            Arrays.sort(recent, 0, count);
+            return count % 2 == 1 ? recent[count / 2] : (recent[count / 2 - 1] + recent[count / 2]) / 2;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import atirek.pothiwala.connection.extensions.ConnectivityListener;
+
+/**
+ * Holds requests issued while offline and replays them on the main thread, with bounded concurrency,
+ * once the network comes back. Held requests can be cancelled by tag or by lifecycle owner,
+ * and requests of an owner are cancelled when it is destroyed if they ask for it.
+ */
+public class OfflineQueue implements ConnectivityListener {
+
+    /**
+     * A held request, either replayed with {@link #run(Runnable)} or dropped with {@link #cancel()}, never both.
+     */
+    public static abstract class Replay {
+        private final String tag;
+        private final LifecycleOwner owner;
+        private final boolean cancelOnDestroy;
+
+        public Replay(@NonNull String tag, @Nullable LifecycleOwner owner, boolean cancelOnDestroy) {
+            this.tag = tag;
+            this.owner = owner;
+            this.cancelOnDestroy = owner != null && cancelOnDestroy;
+        }
+
+        /**
+         * Run the request again on the main thread, onDone must be called once it is finished.
+         */
+        protected abstract void run(@NonNull Runnable onDone);
+
+        /**
+         * Drop the request, its listener has to receive the cancellation.
+         */
+        protected abstract void cancel();
+
+        @NonNull
+        public String getTag() {
+            return tag;
+        }
+
+        @Nullable
+        public LifecycleOwner getOwner() {
+            return owner;
+        }
+
+        private boolean isDestroyed() {
+            return owner != null && owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED;
+        }
+    }
+
+    private static volatile OfflineQueue instance;
+
+    private final ConnectivityMonitor monitor;
+    private final Queue<Replay> queue = new ArrayDeque<>();
+    private final Map<LifecycleOwner, LifecycleEventObserver> observers = new HashMap<>();
+    private int maxSize = 50;
+    private int maxConcurrent = 2;
+    private int running;
+
+    private OfflineQueue(@NonNull ConnectivityMonitor monitor) {
+        this.monitor = monitor;
+        monitor.addListener(this);
+    }
+
+    @NonNull
+    public static OfflineQueue get(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (OfflineQueue.class) {
+                if (instance == null) {
+                    instance = new OfflineQueue(ConnectivityMonitor.get(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The queue if it has been created, so requests can be cancelled without a context.
+     */
+    @Nullable
+    public static OfflineQueue peek() {
+        return instance;
+    }
+
+    /**
+     * Set maximum number of requests which are held, default is 50.
+     */
+    public synchronized OfflineQueue setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Set maximum number of requests replayed at the same time, default is 2.
+     */
+    public synchronized OfflineQueue setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        drain();
+        return this;
+    }
+
+    /**
+     * Hold a request until the network comes back.
+     *
+     * @return false when the queue is full and the request has not been held.
+     */
+    public boolean enqueue(@NonNull Replay replay) {
+        if (replay.cancelOnDestroy && replay.isDestroyed()) {
+            replay.cancel();
+            return true;
+        }
+        synchronized (this) {
+            if (queue.size() >= maxSize) {
+                return false;
+            }
+            queue.add(replay);
+            if (replay.cancelOnDestroy) {
+                observe(replay.owner);
+            }
+            drain();
+        }
+        return true;
+    }
+
+    /**
+     * Cancel a request which is still held, returns false when it has already been replayed or dropped.
+     */
+    public boolean cancel(@NonNull Replay replay) {
+        synchronized (this) {
+            if (!queue.remove(replay)) {
+                return false;
+            }
+            release(replay.owner);
+        }
+        replay.cancel();
+        return true;
+    }
+
+    /**
+     * Cancel every held request with the tag, returns the number of cancelled requests.
+     */
+    public int cancel(@NonNull String tag) {
+        List<Replay> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (Replay replay : queue) {
+                if (replay.tag.equals(tag)) {
+                    cancelled.add(replay);
+                }
+            }
+            remove(cancelled);
+        }
+        return cancelAll(cancelled);
+    }
+
+    /**
+     * Cancel every held request of the owner, returns the number of cancelled requests.
+     */
+    public int cancel(@NonNull LifecycleOwner owner) {
+        List<Replay> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (Replay replay : queue) {
+                if (replay.owner == owner) {
+                    cancelled.add(replay);
+                }
+            }
+            remove(cancelled);
+            unobserve(owner);
+        }
+        return cancelAll(cancelled);
+    }
+
+    public synchronized int getSize() {
+        return queue.size();
+    }
+
+    /**
+     * Drop every held request, their listeners receive the cancellation.
+     */
+    public void clear() {
+        List<Replay> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(queue);
+            remove(cancelled);
+        }
+        cancelAll(cancelled);
+    }
+
+    @Override
+    public void onConnectivityChanged(boolean available) {
+        if (available) {
+            synchronized (this) {
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        while (running < maxConcurrent && !queue.isEmpty() && monitor.isAvailable()) {
+            Replay replay = queue.poll();
+            release(replay.owner);
+            running++;
+            MainThreadExecutor.get().execute(() -> {
+                if (replay.isDestroyed()) {
+                    // The screen is gone, a loader or listener of it must not be touched anymore.
+                    replay.cancel();
+                    onDone();
+                } else {
+                    replay.run(this::onDone);
+                }
+            });
+        }
+    }
+
+    private synchronized void onDone() {
+        running--;
+        drain();
+    }
+
+    private void remove(List<Replay> cancelled) {
+        queue.removeAll(cancelled);
+        for (Replay replay : cancelled) {
+            release(replay.owner);
+        }
+    }
+
+    private static int cancelAll(List<Replay> cancelled) {
+        for (Replay replay : cancelled) {
+            replay.cancel();
+        }
+        return cancelled.size();
+    }
+
+    private void observe(final LifecycleOwner owner) {
+        if (observers.containsKey(owner)) {
+            return;
+        }
+        final LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                cancel(source);
+            }
+        };
+        observers.put(owner, observer);
+        MainThreadExecutor.get().execute(() -> owner.getLifecycle().addObserver(observer));
+    }
+
+    private void unobserve(final LifecycleOwner owner) {
+        final LifecycleEventObserver observer = observers.remove(owner);
+        if (observer != null) {
+            MainThreadExecutor.get().execute(() -> owner.getLifecycle().removeObserver(observer));
+        }
+    }
+
+    /**
+     * Stop observing an owner once none of its requests is held.
+     */
+    private void release(@Nullable LifecycleOwner owner) {
+        if (owner == null || !observers.containsKey(owner)) {
+            return;
+        }
+        for (Replay replay : queue) {
+            if (replay.owner == owner) {
+                return;
+            }
+        }
+        unobserve(owner);
+    }
+}
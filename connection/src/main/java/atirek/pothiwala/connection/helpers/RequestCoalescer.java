@@ -0,0 +1,210 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Collapses identical in-flight GET / HEAD requests into a single network call and fans the response out
+ * to every waiting callback. The shared call is cancelled only when every subscriber has cancelled.
+ */
+public class RequestCoalescer {
+
+    private static final String[] KEY_HEADERS = {"Accept", "Accept-Language", "Authorization", "Cookie"};
+    private static final RequestCoalescer INSTANCE = new RequestCoalescer();
+
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    @NonNull
+    public static RequestCoalescer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Key of an idempotent request, null when the request can not be shared.
+     */
+    @Nullable
+    public static String key(@NonNull Request request) {
+        if (!"GET".equals(request.method()) && !"HEAD".equals(request.method())) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(request.method()).append(' ').append(request.url());
+        for (String name : KEY_HEADERS) {
+            String value = request.header(name);
+            if (value != null) {
+                builder.append('\n').append(name).append(':').append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Key of an idempotent request within a scope such as the signed in account, null when the request can not be shared.
+     */
+    @Nullable
+    public static String key(@NonNull Request request, @Nullable String scope) {
+        String key = key(request);
+        return key != null && scope != null ? scope + '\n' + key : key;
+    }
+
+    /**
+     * Enqueue the call, or join an identical call which is already in flight.
+     */
+    public void enqueue(@NonNull Call<String> call, @NonNull Callback<String> callback) {
+        enqueue(call, callback, null);
+    }
+
+    /**
+     * Enqueue the call, or join an identical call of the same scope which is already in flight.
+     * Credentials added by an OkHttp interceptor are not part of the key, see {@link #key(Request, String)}.
+     */
+    public void enqueue(@NonNull Call<String> call, @NonNull Callback<String> callback, @Nullable String scope) {
+        String key = key(call.request(), scope);
+        if (key == null) {
+            call.enqueue(callback);
+            return;
+        }
+
+        Flight flight;
+        synchronized (this) {
+            flight = flights.get(key);
+            if (flight != null) {
+                flight.subscribers.add(new Subscriber(call, callback));
+                return;
+            }
+            flight = new Flight(key, call.clone());
+            flight.subscribers.add(new Subscriber(call, callback));
+            flights.put(key, flight);
+        }
+        ConnectorMetrics.tag(flight.shared.request(), ConnectorMetrics.tagOf(call.request()));
+        flight.shared.enqueue(flight);
+    }
+
+    /**
+     * Cancel a call which has been enqueued through the coalescer.
+     *
+     * @return false when the call is not known to the coalescer.
+     */
+    public boolean cancel(@NonNull Call<?> call) {
+        Subscriber subscriber = null;
+        Flight flight = null;
+        boolean last = false;
+        synchronized (this) {
+            for (Flight candidate : flights.values()) {
+                for (Subscriber item : candidate.subscribers) {
+                    if (item.call == call) {
+                        subscriber = item;
+                        flight = candidate;
+                        break;
+                    }
+                }
+                if (subscriber != null) {
+                    break;
+                }
+            }
+            if (subscriber == null) {
+                return false;
+            }
+            flight.subscribers.remove(subscriber);
+            if (flight.subscribers.isEmpty()) {
+                flights.remove(flight.key);
+                last = true;
+            }
+        }
+
+        subscriber.call.cancel();
+        if (last) {
+            flight.shared.cancel();
+        }
+        subscriber.callback.onFailure(subscriber.call, new IOException("Canceled"));
+        return true;
+    }
+
+    /**
+     * Number of network calls currently shared by one or more subscribers.
+     */
+    public synchronized int getInFlightCount() {
+        return flights.size();
+    }
+
+    private synchronized List<Subscriber> finish(Flight flight) {
+        if (flights.get(flight.key) == flight) {
+            flights.remove(flight.key);
+        }
+        List<Subscriber> subscribers = new ArrayList<>(flight.subscribers);
+        flight.subscribers.clear();
+        return subscribers;
+    }
+
+    private static class Subscriber {
+        final Call<String> call;
+        final Callback<String> callback;
+
+        Subscriber(Call<String> call, Callback<String> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    private class Flight implements Callback<String> {
+        final String key;
+        final Call<String> shared;
+        final List<Subscriber> subscribers = new ArrayList<>();
+
+        Flight(String key, Call<String> shared) {
+            this.key = key;
+            this.shared = shared;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
+            // Only the shared request has been read, subscribers record nothing for their own requests.
+            ConnectorMetrics.dispatched(shared.request());
+            List<Subscriber> subscribers = finish(this);
+            if (response.isSuccessful()) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.callback.onResponse(subscriber.call, response);
+                }
+                return;
+            }
+
+            // Error body can be read only once, so buffer it for every subscriber.
+            MediaType contentType = null;
+            byte[] errorBytes = new byte[0];
+            try (ResponseBody errorBody = response.errorBody()) {
+                if (errorBody != null) {
+                    contentType = errorBody.contentType();
+                    errorBytes = errorBody.bytes();
+                }
+            } catch (IOException e) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.callback.onFailure(subscriber.call, e);
+                }
+                return;
+            }
+            for (Subscriber subscriber : subscribers) {
+                Response<String> copy = Response.error(ResponseBody.create(contentType, errorBytes), response.raw());
+                subscriber.callback.onResponse(subscriber.call, copy);
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
+            for (Subscriber subscriber : finish(this)) {
+                subscriber.callback.onFailure(subscriber.call, t);
+            }
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package atirek.pothiwala.connection.helpers;
 
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 
 import atirek.pothiwala.connection.extensions.ProgressListener;
 import okhttp3.MediaType;
@@ -12,8 +20,15 @@ import okhttp3.RequestBody;
 
 public class RequestCreator {
 
+    /**
+     * Header of a gzip compressed body for clients not created by {@link ClientRegistry},
+     * e.g. {@code @Headers(RequestCreator.GZIP_HEADER)} along a body of {@link #createGzipJson(String)}.
+     */
+    public static final String GZIP_HEADER = "Content-Encoding: gzip";
+
     private static final String MULTIPART_FORM_DATA = "multipart/form-data";
     private static final String JSON_DATA = "application/json";
+    private static final long COMPRESSION_THRESHOLD = 1024;
 
     /**
      * Create a request body in FORM-DATA
@@ -26,12 +41,38 @@ public class RequestCreator {
      * Create a request body for a file in FORM-DATA
      * */
     public static MultipartBody.Part createPartFromFile(@NonNull String partName, @NonNull String outputFile, @Nullable ProgressListener listener) {
-        File file = new File(outputFile);
+        return createPartFromFile(partName, new File(outputFile), listener);
+    }
+
+    /**
+     * Create a request body for a file in FORM-DATA
+     * */
+    public static MultipartBody.Part createPartFromFile(@NonNull String partName, @NonNull File file, @Nullable ProgressListener listener) {
         ProgressRequestBody requestFile = new ProgressRequestBody(MediaType.parse(MULTIPART_FORM_DATA), file);
         requestFile.setListener(listener);
         return MultipartBody.Part.createFormData(partName, file.getName(), requestFile);
     }
 
+    /**
+     * Create a request body for a content Uri in FORM-DATA, e.g. from the gallery, streamed without a temporary copy
+     * */
+    public static MultipartBody.Part createPartFromUri(@NonNull Context context, @NonNull String partName, @NonNull Uri uri, @Nullable ProgressListener listener) {
+        ContentResolver resolver = context.getContentResolver();
+        String type = resolver.getType(uri);
+        UriRequestBody requestFile = new UriRequestBody(MediaType.parse(type != null ? type : MULTIPART_FORM_DATA), resolver, uri);
+        requestFile.setListener(listener);
+        return MultipartBody.Part.createFormData(partName, queryName(resolver, uri), requestFile);
+    }
+
+    /**
+     * Create a request body for a file descriptor in FORM-DATA, the descriptor is closed by the caller once uploaded
+     * */
+    public static MultipartBody.Part createPartFromDescriptor(@NonNull String partName, @NonNull String fileName, @NonNull ParcelFileDescriptor descriptor, @Nullable ProgressListener listener) {
+        DescriptorRequestBody requestFile = new DescriptorRequestBody(MediaType.parse(MULTIPART_FORM_DATA), descriptor);
+        requestFile.setListener(listener);
+        return MultipartBody.Part.createFormData(partName, fileName, requestFile);
+    }
+
     /**
      * Create a request body in JSON-DATA
      * */
@@ -39,4 +80,48 @@ public class RequestCreator {
         return RequestBody.create(MediaType.parse(JSON_DATA), json);
     }
 
+    /**
+     * Create a gzip compressed request body in JSON-DATA, small payloads below 1 KB are sent as they are
+     * Note: Content-Encoding is added only by clients of {@link ClientRegistry}, e.g. from Connector.createClient.
+     * With any other client use {@link #createGzipJson(String)} and {@link #GZIP_HEADER}.
+     * */
+    public static RequestBody createCompressedJson(@NonNull String json) {
+        return compress(createPartFromJson(json), COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Create a request body in JSON-DATA which is always gzip compressed, for a method declared with {@link #GZIP_HEADER}
+     * */
+    public static RequestBody createGzipJson(@NonNull String json) {
+        return new GzipRequestBody(createPartFromJson(json));
+    }
+
+    /**
+     * Compress a request body with gzip when its length reaches the threshold in bytes, e.g. a large JSON payload.
+     * Note: The body is compressed in memory, do not use it for files. Content-Encoding is added only by clients
+     * of {@link ClientRegistry}, the body must not be sent with any other client.
+     * */
+    public static RequestBody compress(@NonNull RequestBody body, long threshold) {
+        try {
+            if (body.contentLength() < threshold) {
+                return body;
+            }
+        } catch (IOException e) {
+            return body;
+        }
+        return new GzipRequestBody(body);
+    }
+
+    private static String queryName(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getString(0);
+            }
+        } catch (RuntimeException e) {
+            // Fall back to the last path segment.
+        }
+        String name = uri.getLastPathSegment();
+        return name != null ? name : "file";
+    }
+
 }
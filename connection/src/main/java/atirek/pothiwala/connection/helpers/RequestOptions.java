@@ -0,0 +1,196 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.app.Dialog;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
+
+import java.util.concurrent.Executor;
+
+import atirek.pothiwala.connection.extensions.ConnectListener;
+import atirek.pothiwala.connection.extensions.Lane;
+import atirek.pothiwala.connection.extensions.ProgressListener;
+
+/**
+ * Listener and UI bindings of a single call, so one Connector can be shared by every screen of the app.
+ * A value which is not set is taken from the setters of the Connector. The options are copied when the call
+ * is made, so they can be reused or changed afterwards without affecting calls in flight.
+ */
+public class RequestOptions {
+
+    private ConnectListener listener;
+    private ProgressListener progressListener;
+    private Executor callbackExecutor;
+    private Dialog loader;
+    private SwipeRefreshLayout refreshLayout;
+    private RetryPolicy retryPolicy;
+    private boolean retryPolicySet;
+    private Lane lane;
+    private LifecycleOwner lifecycleOwner;
+    private boolean cancelOnDestroy;
+
+    public RequestOptions() {
+    }
+
+    public RequestOptions(@NonNull RequestOptions other) {
+        this.listener = other.listener;
+        this.progressListener = other.progressListener;
+        this.callbackExecutor = other.callbackExecutor;
+        this.loader = other.loader;
+        this.refreshLayout = other.refreshLayout;
+        this.retryPolicy = other.retryPolicy;
+        this.retryPolicySet = other.retryPolicySet;
+        this.lane = other.lane;
+        this.lifecycleOwner = other.lifecycleOwner;
+        this.cancelOnDestroy = other.cancelOnDestroy;
+    }
+
+    /**
+     * Set listener which will give result and error of the call.
+     */
+    public RequestOptions setListener(@Nullable ConnectListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Set listener which will show progress of a download or upload.
+     */
+    public RequestOptions setProgressListener(@Nullable ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Set executor on which the listener is called.
+     */
+    public RequestOptions setCallbackExecutor(@Nullable Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Set a loader dialog which is shown while the call is running.
+     */
+    public RequestOptions setLoader(@Nullable Dialog loader) {
+        this.loader = loader;
+        return this;
+    }
+
+    /**
+     * Set refresh layout which stops refreshing once the call is finished.
+     */
+    public RequestOptions setRefreshLayout(@Nullable SwipeRefreshLayout refreshLayout) {
+        this.refreshLayout = refreshLayout;
+        return this;
+    }
+
+    /**
+     * Set {@link RetryPolicy} of the call, pass null to disable retries even when the Connector has a default policy.
+     */
+    public RequestOptions setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        this.retryPolicySet = true;
+        return this;
+    }
+
+    /**
+     * Set lane of the call in the shared {@link RequestScheduler}.
+     */
+    public RequestOptions setLane(@Nullable Lane lane) {
+        this.lane = lane;
+        return this;
+    }
+
+    /**
+     * Group the call by a lifecycle owner, see {@link RequestScheduler#cancel(LifecycleOwner)}.
+     *
+     * @param cancelOnDestroy cancel the call automatically when the owner is destroyed.
+     */
+    public RequestOptions setLifecycleOwner(@Nullable LifecycleOwner owner, boolean cancelOnDestroy) {
+        this.lifecycleOwner = owner;
+        this.cancelOnDestroy = cancelOnDestroy;
+        return this;
+    }
+
+    /**
+     * Copy of these options of which every value that is not set is taken from the defaults.
+     */
+    @NonNull
+    public RequestOptions withDefaults(@NonNull RequestOptions defaults) {
+        RequestOptions options = new RequestOptions(this);
+        if (options.listener == null) {
+            options.listener = defaults.listener;
+        }
+        if (options.progressListener == null) {
+            options.progressListener = defaults.progressListener;
+        }
+        if (options.callbackExecutor == null) {
+            options.callbackExecutor = defaults.callbackExecutor;
+        }
+        if (options.loader == null) {
+            options.loader = defaults.loader;
+        }
+        if (options.refreshLayout == null) {
+            options.refreshLayout = defaults.refreshLayout;
+        }
+        if (!options.retryPolicySet) {
+            options.retryPolicy = defaults.retryPolicy;
+            options.retryPolicySet = defaults.retryPolicySet;
+        }
+        if (options.lane == null) {
+            options.lane = defaults.lane;
+        }
+        if (options.lifecycleOwner == null) {
+            options.lifecycleOwner = defaults.lifecycleOwner;
+            options.cancelOnDestroy = defaults.cancelOnDestroy;
+        }
+        return options;
+    }
+
+    @Nullable
+    public ConnectListener getListener() {
+        return listener;
+    }
+
+    @Nullable
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    @Nullable
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    @Nullable
+    public Dialog getLoader() {
+        return loader;
+    }
+
+    @Nullable
+    public SwipeRefreshLayout getRefreshLayout() {
+        return refreshLayout;
+    }
+
+    @Nullable
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Nullable
+    public Lane getLane() {
+        return lane;
+    }
+
+    @Nullable
+    public LifecycleOwner getLifecycleOwner() {
+        return lifecycleOwner;
+    }
+
+    public boolean isCancelOnDestroy() {
+        return cancelOnDestroy;
+    }
+}
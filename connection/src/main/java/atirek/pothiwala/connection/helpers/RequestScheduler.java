@@ -0,0 +1,325 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import atirek.pothiwala.connection.extensions.Lane;
+
+/**
+ * Library-wide scheduler for requests with a concurrency limit per {@link Lane} and in total.
+ * A free slot goes to the first lane with a queued job and room left, so background work never takes a slot
+ * a waiting interactive request could use, while a full lane does not hold back the others.
+ * Jobs can be cancelled by tag or by lifecycle owner,
+ * and jobs of an owner are cancelled when it is destroyed if they ask for it.
+ */
+public class RequestScheduler {
+
+    /**
+     * A request of the scheduler, {@link #start()} enqueues the call and the job reports back
+     * through {@link RequestScheduler#finished(Job)} once the call is done.
+     */
+    public static abstract class Job {
+        private final String tag;
+        private final Lane lane;
+        private final LifecycleOwner owner;
+        private final boolean cancelOnDestroy;
+        private long sequence;
+
+        public Job(@NonNull String tag, @NonNull Lane lane, @Nullable LifecycleOwner owner, boolean cancelOnDestroy) {
+            this.tag = tag;
+            this.lane = lane;
+            this.owner = owner;
+            this.cancelOnDestroy = owner != null && cancelOnDestroy;
+        }
+
+        /**
+         * Enqueue the call, called once without holding the lock of the scheduler.
+         */
+        protected abstract void start();
+
+        /**
+         * Cancel the job, started is false when the call has never been enqueued
+         * and its callback still has to receive the cancellation.
+         */
+        protected abstract void abort(boolean started);
+
+        @NonNull
+        public String getTag() {
+            return tag;
+        }
+
+        @NonNull
+        public Lane getLane() {
+            return lane;
+        }
+
+        @Nullable
+        public LifecycleOwner getOwner() {
+            return owner;
+        }
+    }
+
+    private static final RequestScheduler INSTANCE = new RequestScheduler();
+
+    private final List<Job> pending = new ArrayList<>();
+    private final List<Job> running = new ArrayList<>();
+    private final Map<Lane, Integer> maxConcurrent = new EnumMap<>(Lane.class);
+    private final Map<LifecycleOwner, LifecycleEventObserver> observers = new HashMap<>();
+    private int maxRequests = 64;
+    private long sequence;
+
+    RequestScheduler() {
+        maxConcurrent.put(Lane.interactive, 64);
+        maxConcurrent.put(Lane.normal, 64);
+        maxConcurrent.put(Lane.background, 4);
+    }
+
+    @NonNull
+    public static RequestScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set maximum number of requests of the lane running at the same time,
+     * default is 64 for interactive and normal requests, like the dispatcher of OkHttp, and 4 for background requests.
+     */
+    public RequestScheduler setMaxConcurrent(@NonNull Lane lane, int max) {
+        synchronized (this) {
+            maxConcurrent.put(lane, Math.max(1, max));
+        }
+        startAll(promote());
+        return this;
+    }
+
+    /**
+     * Set maximum number of requests of all lanes running at the same time, default is 64.
+     * Once it is reached, a finished request makes room for the queued job of the highest lane.
+     */
+    public RequestScheduler setMaxRequests(int max) {
+        synchronized (this) {
+            maxRequests = Math.max(1, max);
+        }
+        startAll(promote());
+        return this;
+    }
+
+    public void enqueue(@NonNull Job job) {
+        if (job.cancelOnDestroy && job.owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            job.abort(false);
+            return;
+        }
+        List<Job> ready;
+        synchronized (this) {
+            job.sequence = sequence++;
+            pending.add(job);
+            if (job.cancelOnDestroy) {
+                observe(job.owner);
+            }
+            ready = promote();
+        }
+        startAll(ready);
+    }
+
+    /**
+     * Release the slot of a job once its call is done, it is safe to call more than once.
+     */
+    public void finished(@NonNull Job job) {
+        List<Job> ready;
+        synchronized (this) {
+            if (!running.remove(job)) {
+                return;
+            }
+            release(job.owner);
+            ready = promote();
+        }
+        startAll(ready);
+    }
+
+    /**
+     * Cancel a job which is still queued, returns false when it has already started.
+     */
+    public boolean cancelQueued(@NonNull Job job) {
+        synchronized (this) {
+            if (!pending.remove(job)) {
+                return false;
+            }
+            release(job.owner);
+        }
+        job.abort(false);
+        return true;
+    }
+
+    /**
+     * Cancel every queued and running job with the tag, returns the number of cancelled jobs.
+     */
+    public int cancel(@NonNull String tag) {
+        List<Job> queued = new ArrayList<>();
+        List<Job> started = new ArrayList<>();
+        synchronized (this) {
+            for (Job job : pending) {
+                if (job.tag.equals(tag)) {
+                    queued.add(job);
+                }
+            }
+            for (Job job : running) {
+                if (job.tag.equals(tag)) {
+                    started.add(job);
+                }
+            }
+            remove(queued);
+        }
+        return abortAll(queued, started);
+    }
+
+    /**
+     * Cancel every queued and running job of the owner, returns the number of cancelled jobs.
+     */
+    public int cancel(@NonNull LifecycleOwner owner) {
+        List<Job> queued = new ArrayList<>();
+        List<Job> started = new ArrayList<>();
+        synchronized (this) {
+            for (Job job : pending) {
+                if (job.owner == owner) {
+                    queued.add(job);
+                }
+            }
+            for (Job job : running) {
+                if (job.owner == owner) {
+                    started.add(job);
+                }
+            }
+            remove(queued);
+            unobserve(owner);
+        }
+        return abortAll(queued, started);
+    }
+
+    /**
+     * Snapshot of jobs which are waiting to run, in the order they will start.
+     */
+    @NonNull
+    public synchronized List<Job> getPending() {
+        List<Job> jobs = new ArrayList<>(pending);
+        sort(jobs);
+        return jobs;
+    }
+
+    /**
+     * Snapshot of jobs which are running.
+     */
+    @NonNull
+    public synchronized List<Job> getRunning() {
+        return new ArrayList<>(running);
+    }
+
+    private List<Job> promote() {
+        List<Job> ready = new ArrayList<>();
+        if (pending.isEmpty()) {
+            return ready;
+        }
+        sort(pending);
+        for (Job job : new ArrayList<>(pending)) {
+            if (running.size() >= maxRequests) {
+                // Jobs of later lanes wait, so the next free slot goes to the highest lane.
+                break;
+            }
+            if (count(job.lane) >= maxConcurrent.get(job.lane)) {
+                continue;
+            }
+            pending.remove(job);
+            running.add(job);
+            ready.add(job);
+        }
+        return ready;
+    }
+
+    private int count(Lane lane) {
+        int count = 0;
+        for (Job job : running) {
+            if (job.lane == lane) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void remove(List<Job> queued) {
+        pending.removeAll(queued);
+        for (Job job : queued) {
+            release(job.owner);
+        }
+    }
+
+    private static void startAll(List<Job> jobs) {
+        for (Job job : jobs) {
+            job.start();
+        }
+    }
+
+    private static int abortAll(List<Job> queued, List<Job> started) {
+        for (Job job : queued) {
+            job.abort(false);
+        }
+        for (Job job : started) {
+            job.abort(true);
+        }
+        return queued.size() + started.size();
+    }
+
+    private void observe(final LifecycleOwner owner) {
+        if (observers.containsKey(owner)) {
+            return;
+        }
+        final LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                cancel(source);
+            }
+        };
+        observers.put(owner, observer);
+        MainThreadExecutor.get().execute(() -> owner.getLifecycle().addObserver(observer));
+    }
+
+    private void unobserve(final LifecycleOwner owner) {
+        final LifecycleEventObserver observer = observers.remove(owner);
+        if (observer != null) {
+            MainThreadExecutor.get().execute(() -> owner.getLifecycle().removeObserver(observer));
+        }
+    }
+
+    /**
+     * Stop observing an owner once none of its jobs is left.
+     */
+    private void release(@Nullable LifecycleOwner owner) {
+        if (owner == null || !observers.containsKey(owner)) {
+            return;
+        }
+        for (Job job : pending) {
+            if (job.owner == owner) {
+                return;
+            }
+        }
+        for (Job job : running) {
+            if (job.owner == owner) {
+                return;
+            }
+        }
+        unobserve(owner);
+    }
+
+    private static void sort(List<Job> jobs) {
+        Collections.sort(jobs, (first, second) -> {
+            int compare = first.lane.compareTo(second.lane);
+            return compare != 0 ? compare : Long.compare(first.sequence, second.sequence);
+        });
+    }
+}
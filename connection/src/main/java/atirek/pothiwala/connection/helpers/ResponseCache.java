@@ -0,0 +1,164 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import atirek.pothiwala.connection.extensions.CacheStats;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+
+/**
+ * In-memory LRU of recent String responses bounded by bytes, in front of the HTTP disk cache of {@link ClientRegistry}.
+ * Entries honour Cache-Control of the response: no-store is never kept and max-age decides freshness.
+ */
+public class ResponseCache {
+
+    public static class Entry {
+        private final int statusCode;
+        private final String body;
+        private final String message;
+        private final long maxAgeMillis;
+        private long storedAt;
+
+        Entry(int statusCode, @NonNull String body, @Nullable String message, long maxAgeMillis) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.message = message;
+            this.maxAgeMillis = maxAgeMillis;
+            this.storedAt = System.currentTimeMillis();
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @NonNull
+        public String getBody() {
+            return body;
+        }
+
+        @Nullable
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() - storedAt < maxAgeMillis;
+        }
+
+        long size() {
+            return 2L * body.length() + (message != null ? 2L * message.length() : 0) + 64;
+        }
+    }
+
+    private static final ResponseCache INSTANCE = new ResponseCache();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxSize = 4 * 1024 * 1024;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @NonNull
+    public static ResponseCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set maximum size in bytes of responses held in memory, default is 4 MB.
+     */
+    public synchronized ResponseCache setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trim();
+        return this;
+    }
+
+    @Nullable
+    public synchronized Entry get(@NonNull String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Keep a response unless its Cache-Control forbids it.
+     */
+    public synchronized void put(@NonNull String key, int statusCode, @NonNull String body, @Nullable String message, @NonNull CacheControl cacheControl) {
+        if (cacheControl.noStore()) {
+            remove(key);
+            return;
+        }
+        long maxAgeMillis = cacheControl.noCache() ? 0 : Math.max(0, cacheControl.maxAgeSeconds()) * 1000L;
+        Entry entry = new Entry(statusCode, body, message, maxAgeMillis);
+        if (entry.size() > maxSize) {
+            remove(key);
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            size -= previous.size();
+        }
+        size += entry.size();
+        trim();
+    }
+
+    /**
+     * Mark an entry as revalidated, its freshness starts again.
+     */
+    public synchronized void touch(@NonNull String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.storedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized void remove(@NonNull String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.size();
+        }
+    }
+
+    /**
+     * Drop every response, e.g. on logout when credentials are not part of the requests.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Hit, miss and eviction counters of the memory and disk tiers.
+     */
+    @NonNull
+    public synchronized CacheStats getStats() {
+        Cache cache = ClientRegistry.getSharedClient().cache();
+        return new CacheStats(hits, misses, evictions, size,
+                cache != null ? cache.hitCount() : 0,
+                cache != null ? cache.networkCount() : 0);
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import atirek.pothiwala.connection.extensions.Phase;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Runs a call with the retries and hedging of a {@link RetryPolicy}, the callback receives only the final outcome.
+ * Retries are scheduled on the main thread, where the callbacks of Retrofit are delivered.
+ */
+public class RetryCall<T> implements Callback<T> {
+
+    private final Call<T> call;
+    private final RetryPolicy policy;
+    private final String tag;
+    private final Callback<T> callback;
+    private final List<Call<T>> inFlight = new ArrayList<>();
+    private final Runnable retryRunnable = this::retry;
+    private final Runnable hedgeRunnable = this::hedge;
+
+    private int retries;
+    private boolean finished;
+
+    public RetryCall(@NonNull Call<T> call, @NonNull RetryPolicy policy, @NonNull String tag, @NonNull Callback<T> callback) {
+        this.call = call;
+        this.policy = policy;
+        this.tag = tag;
+        this.callback = callback;
+    }
+
+    public void enqueue() {
+        start(call.isExecuted() ? call.clone() : call);
+
+        if (policy.isHedged(call.request().method())) {
+            long delay = policy.getHedgeDelayMillis();
+            if (delay <= 0) {
+                LatencyHistogram histogram = ConnectorMetrics.histogram(tag, Phase.total);
+                if (histogram != null && histogram.getCount() >= RetryPolicy.MIN_HEDGE_SAMPLES) {
+                    delay = (long) Math.ceil(histogram.percentile(95));
+                }
+            }
+            if (delay > 0) {
+                MainThreadExecutor.get().executeDelayed(hedgeRunnable, delay);
+            }
+        }
+    }
+
+    /**
+     * Cancel every attempt, the callback receives a failure of a cancelled call.
+     */
+    public void cancel() {
+        List<Call<T>> attempts;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            attempts = new ArrayList<>(inFlight);
+            inFlight.clear();
+        }
+        MainThreadExecutor.get().remove(retryRunnable);
+        MainThreadExecutor.get().remove(hedgeRunnable);
+        call.cancel();
+        for (Call<T> attempt : attempts) {
+            attempt.cancel();
+        }
+        callback.onFailure(call, new IOException("Canceled"));
+    }
+
+    @Override
+    public void onResponse(@NonNull Call<T> attempt, @NonNull Response<T> response) {
+        boolean waiting;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            inFlight.remove(attempt);
+            waiting = !inFlight.isEmpty();
+            if (policy.isRetryable(response.code()) && (waiting || canRetry())) {
+                if (!waiting) {
+                    retries++;
+                    MainThreadExecutor.get().executeDelayed(retryRunnable, policy.getDelayMillis(retries, response.raw()));
+                }
+                closeError(response);
+                return;
+            }
+        }
+        complete();
+        callback.onResponse(attempt, response);
+    }
+
+    @Override
+    public void onFailure(@NonNull Call<T> attempt, @NonNull Throwable t) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            inFlight.remove(attempt);
+            if (!inFlight.isEmpty()) {
+                // Another copy of the request may still succeed.
+                return;
+            }
+            if (t instanceof IOException && !(t instanceof CircuitBreaker.OpenException) && !attempt.isCanceled() && canRetry()) {
+                retries++;
+                MainThreadExecutor.get().executeDelayed(retryRunnable, policy.getDelayMillis(retries));
+                return;
+            }
+        }
+        complete();
+        callback.onFailure(attempt, t);
+    }
+
+    private boolean canRetry() {
+        return retries < policy.getMaxRetries() && policy.isRetryable(call.request().method());
+    }
+
+    private void retry() {
+        start(call.clone());
+    }
+
+    private void hedge() {
+        synchronized (this) {
+            if (finished || inFlight.isEmpty()) {
+                return;
+            }
+        }
+        start(call.clone());
+    }
+
+    private void start(Call<T> attempt) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            inFlight.add(attempt);
+        }
+        ConnectorMetrics.tag(attempt.request(), tag);
+        attempt.enqueue(this);
+    }
+
+    /**
+     * Mark as finished and cancel copies which lost the race.
+     */
+    private void complete() {
+        List<Call<T>> losers;
+        synchronized (this) {
+            finished = true;
+            losers = new ArrayList<>(inFlight);
+            inFlight.clear();
+        }
+        MainThreadExecutor.get().remove(retryRunnable);
+        MainThreadExecutor.get().remove(hedgeRunnable);
+        for (Call<T> loser : losers) {
+            loser.cancel();
+        }
+    }
+
+    private static void closeError(Response<?> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries calls of a client according to its {@link RetryPolicy}, installed through {@link ClientConfig#setRetryPolicy(RetryPolicy)}.
+ * Backoff delays block the dispatcher thread of the call, like the retries of OkHttp itself.
+ */
+class RetryInterceptor implements Interceptor {
+
+    private final RetryPolicy policy;
+
+    RetryInterceptor(@NonNull RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!policy.isRetryable(request.method())) {
+            return chain.proceed(request);
+        }
+
+        int retry = 0;
+        while (true) {
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            boolean retryable = failure != null ? !chain.call().isCanceled() : policy.isRetryable(response.code());
+            if (!retryable || retry >= policy.getMaxRetries()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+
+            retry++;
+            long delay = policy.getDelayMillis(retry, response);
+            if (response != null) {
+                response.close();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Retry interrupted");
+            }
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+
+/**
+ * Retry of transient failures with exponential backoff and jitter, only for idempotent methods.
+ * Optionally GET / HEAD requests are hedged: a second copy is sent when no response arrived in time.
+ */
+public class RetryPolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE"));
+    private static final Set<String> HEDGED_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD"));
+
+    /**
+     * Minimum number of recorded calls of a TAG before its p95 latency is used as hedge delay.
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
+    private int maxRetries = 3;
+    private long initialDelayMillis = 500;
+    private long maxDelayMillis = TimeUnit.SECONDS.toMillis(8);
+    private double multiplier = 2;
+    private double jitter = 0.5;
+    private final Set<Integer> retryableCodes = new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504));
+    private boolean hedging;
+    private long hedgeDelayMillis;
+
+    /**
+     * Set maximum number of retries after the first attempt, default is 3.
+     */
+    public RetryPolicy setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+        return this;
+    }
+
+    /**
+     * Set delay before the first retry and the maximum delay between two retries, default is 500 ms up to 8 seconds.
+     */
+    public RetryPolicy setBackoff(long initialDelay, long maxDelay, @NonNull TimeUnit unit) {
+        this.initialDelayMillis = unit.toMillis(initialDelay);
+        this.maxDelayMillis = unit.toMillis(maxDelay);
+        return this;
+    }
+
+    /**
+     * Set factor applied to the delay after every retry, default is 2.
+     */
+    public RetryPolicy setMultiplier(double multiplier) {
+        this.multiplier = Math.max(1, multiplier);
+        return this;
+    }
+
+    /**
+     * Set part of the delay which is randomized, from 0 (none) to 1 (full jitter), default is 0.5.
+     */
+    public RetryPolicy setJitter(double jitter) {
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        return this;
+    }
+
+    /**
+     * Set status codes which are retried, default is 408, 429, 500, 502, 503 and 504.
+     */
+    public RetryPolicy setRetryableCodes(@NonNull Integer... codes) {
+        retryableCodes.clear();
+        retryableCodes.addAll(Arrays.asList(codes));
+        return this;
+    }
+
+    /**
+     * To send a second copy of GET / HEAD requests when no response arrived by the hedge delay,
+     * whichever finishes first wins. Disabled by default.
+     */
+    public RetryPolicy setHedging(boolean enable) {
+        this.hedging = enable;
+        return this;
+    }
+
+    /**
+     * Set delay before a hedged copy is sent, default is 0 which uses the p95 latency recorded for the TAG.
+     * No copy is sent until enough calls of the TAG have been recorded.
+     */
+    public RetryPolicy setHedgeDelay(long delay, @NonNull TimeUnit unit) {
+        this.hedgeDelayMillis = unit.toMillis(delay);
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public boolean isRetryable(@NonNull String method) {
+        return IDEMPOTENT_METHODS.contains(method);
+    }
+
+    public boolean isRetryable(int statusCode) {
+        return retryableCodes.contains(statusCode);
+    }
+
+    public boolean isHedged(@NonNull String method) {
+        return hedging && HEDGED_METHODS.contains(method);
+    }
+
+    /**
+     * Delay before the retry, counted from 1. A Retry-After header of the response is honoured up to the maximum delay.
+     */
+    public long getDelayMillis(int retry, @Nullable Response response) {
+        return getDelayMillis(retry, response != null ? response.header("Retry-After") : null);
+    }
+
+    /**
+     * Delay before the retry, counted from 1, when no response was received.
+     */
+    public long getDelayMillis(int retry) {
+        return getDelayMillis(retry, (String) null);
+    }
+
+    /**
+     * Delay before the retry, counted from 1, honouring the value of a Retry-After header up to the maximum delay.
+     */
+    public long getDelayMillis(int retry, @Nullable String retryAfterHeader) {
+        long retryAfter = parseRetryAfter(retryAfterHeader);
+        if (retryAfter >= 0) {
+            return Math.min(retryAfter, maxDelayMillis);
+        }
+        double delay = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, Math.max(0, retry - 1)));
+        return (long) (delay * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static long parseRetryAfter(@Nullable String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP dates are not supported, the regular backoff is used instead.
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Makes requests registered through {@link DownloadStore#revalidate(Request, String)} conditional,
+ * so a stored download which has not changed is answered with 304 instead of its body.
+ */
+class RevalidationInterceptor implements Interceptor {
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String validator = DownloadStore.revalidationOf(request);
+        if (validator == null) {
+            return chain.proceed(request);
+        }
+        return chain.proceed(DownloadStore.conditional(request.newBuilder(), validator).build());
+    }
+}
@@ -0,0 +1,55 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import atirek.pothiwala.connection.extensions.TraceSink;
+
+/**
+ * Keeps the latest traces in memory, so that they can be dumped e.g. from a crash handler.
+ */
+public class RingBufferSink implements TraceSink {
+
+    private final String[] lines;
+    private final long[] times;
+    private int next;
+    private int count;
+
+    public RingBufferSink(int capacity) {
+        this.lines = new String[Math.max(1, capacity)];
+        this.times = new long[lines.length];
+    }
+
+    @Override
+    public synchronized void onTrace(@NonNull String tag, @NonNull String message) {
+        lines[next] = tag + ">> " + message;
+        times[next] = System.currentTimeMillis();
+        next = (next + 1) % lines.length;
+        count = Math.min(count + 1, lines.length);
+    }
+
+    /**
+     * Traces in the order they were received, oldest first.
+     */
+    @NonNull
+    public synchronized List<String> dump() {
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        List<String> dump = new ArrayList<>(count);
+        int start = (next - count + lines.length) % lines.length;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % lines.length;
+            dump.add(format.format(new Date(times[index])) + " " + lines[index]);
+        }
+        return dump;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,95 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Gson converter which deserializes straight from the response stream using a {@link JsonReader},
+ * without buffering the body into a String. Type adapters are resolved once per type and cached.
+ * Retrofit runs converters on the OkHttp thread, so parsing never happens on the callback thread.
+ */
+public class StreamingConverterFactory extends Converter.Factory {
+
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
+
+    private final Gson gson;
+    private final Map<Type, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    private StreamingConverterFactory(@NonNull Gson gson) {
+        this.gson = gson;
+    }
+
+    public static StreamingConverterFactory create() {
+        return create(new Gson());
+    }
+
+    public static StreamingConverterFactory create(@NonNull Gson gson) {
+        return new StreamingConverterFactory(gson);
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type, @NonNull Annotation[] annotations, @NonNull Retrofit retrofit) {
+        TypeAdapter<?> adapter = adapter(type);
+        return value -> {
+            try {
+                JsonReader reader = gson.newJsonReader(value.charStream());
+                Object result = adapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type type, @NonNull Annotation[] parameterAnnotations, @NonNull Annotation[] methodAnnotations, @NonNull Retrofit retrofit) {
+        @SuppressWarnings("unchecked")
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) adapter(type);
+        return value -> {
+            Buffer buffer = new Buffer();
+            Writer writer = new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8);
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            adapter.write(jsonWriter, value);
+            jsonWriter.close();
+            return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
+        };
+    }
+
+    private TypeAdapter<?> adapter(Type type) {
+        TypeAdapter<?> adapter = adapters.get(type);
+        if (adapter == null) {
+            adapter = gson.getAdapter(TypeToken.get(type));
+            adapters.put(type, adapter);
+        }
+        return adapter;
+    }
+}
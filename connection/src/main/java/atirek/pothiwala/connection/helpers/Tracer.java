@@ -0,0 +1,123 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import atirek.pothiwala.connection.extensions.TraceSink;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+/**
+ * Traces requests and responses to one or more sinks. Without sinks it does nothing,
+ * not even building the messages. Request bodies are only captured when they are small, repeatable
+ * and held in memory, so one-shot and file-backed bodies are never consumed before the real request.
+ */
+public class Tracer {
+
+    private final List<TraceSink> sinks = new CopyOnWriteArrayList<>();
+    private volatile int maxBodyBytes = 4096;
+
+    /**
+     * Tracer which writes to LOGCAT.
+     */
+    @NonNull
+    public static Tracer logcat() {
+        return new Tracer().addSink(new LogcatSink());
+    }
+
+    public Tracer addSink(@NonNull TraceSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    public Tracer removeSink(@NonNull TraceSink sink) {
+        sinks.remove(sink);
+        return this;
+    }
+
+    /**
+     * Set maximum number of bytes captured from a body, default is 4096.
+     */
+    public Tracer setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return !sinks.isEmpty();
+    }
+
+    public void trace(@NonNull String tag, @NonNull String message) {
+        for (TraceSink sink : sinks) {
+            sink.onTrace(tag, message);
+        }
+    }
+
+    /**
+     * Trace a prefixed value, the message is only built when enabled and the value is capped.
+     */
+    public void trace(@NonNull String tag, @NonNull String prefix, @Nullable Object value) {
+        if (!isEnabled()) {
+            return;
+        }
+        String text = String.valueOf(value);
+        if (text.length() > maxBodyBytes) {
+            text = text.substring(0, maxBodyBytes) + "... (" + text.length() + " chars)";
+        }
+        trace(tag, prefix + text);
+    }
+
+    /**
+     * Trace url and params of a request.
+     */
+    public void traceRequest(@NonNull String tag, @NonNull Request request) {
+        if (!isEnabled()) {
+            return;
+        }
+        trace(tag, "URL: " + request.url());
+        RequestBody body = request.body();
+        trace(tag, "Params: " + (body != null ? describe(body) : "Empty"));
+    }
+
+    private String describe(RequestBody body) {
+        if (body instanceof MultipartBody) {
+            StringBuilder builder = new StringBuilder();
+            for (MultipartBody.Part part : ((MultipartBody) body).parts()) {
+                if (builder.length() > 0) {
+                    builder.append(" ");
+                }
+                String disposition = part.headers() != null ? part.headers().get("Content-Disposition") : null;
+                builder.append(disposition != null ? disposition : "part").append(": ").append(describe(part.body()));
+            }
+            return builder.toString();
+        }
+
+        long length;
+        try {
+            length = body.contentLength();
+        } catch (Exception e) {
+            return "Unavailable";
+        }
+        if (body instanceof FileChannelRequestBody) {
+            return length < 0 ? "<file stream>" : "<file, " + length + " bytes>";
+        }
+        if (body.isOneShot() || body.isDuplex() || length < 0) {
+            return "<streaming body>";
+        }
+        if (length > maxBodyBytes) {
+            return "<" + length + " bytes>";
+        }
+        try {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            return buffer.readUtf8().replace("&", " ");
+        } catch (Exception e) {
+            return "Unavailable";
+        }
+    }
+}
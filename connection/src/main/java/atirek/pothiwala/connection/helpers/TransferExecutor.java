@@ -0,0 +1,34 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared pool of the parallel segments of downloads and chunks of uploads, bounded so that the transfers run by
+ * {@link DownloadScheduler} can not start an unbounded number of threads. Extra work waits in the queue, while the
+ * first segment or chunk of every transfer runs on its own worker, so a transfer always makes progress.
+ */
+class TransferExecutor {
+
+    static final int MAX_THREADS = 8;
+
+    private static final ExecutorService INSTANCE = create();
+
+    private TransferExecutor() {
+    }
+
+    @NonNull
+    static ExecutorService get() {
+        return INSTANCE;
+    }
+
+    private static ExecutorService create() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,566 @@
+package atirek.pothiwala.connection.helpers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.ProtocolException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Uploads a single file in chunks with the tus resumable upload protocol.
+ * <p>
+ * Every chunk is a partial upload (concatenation extension) which is sent in parallel, acknowledged with its
+ * Upload-Offset and retried on its own from that offset. Once every chunk is complete they are concatenated
+ * into the final upload. Progress is kept in a small state file, so an upload interrupted even by process death
+ * continues with the chunks and offsets already acknowledged by the server.
+ */
+public class UploadEngine {
+
+    public interface ProgressCallback {
+        void onProgress(long uploaded, long total);
+    }
+
+    static final String TUS_VERSION = "1.0.0";
+    private static final MediaType OFFSET_STREAM = MediaType.parse("application/offset+octet-stream");
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    private final OkHttpClient client;
+    private final Request request;
+    private final File file;
+    private final File stateFile;
+    private final List<Call> calls = new ArrayList<>();
+    private final AtomicLong uploaded = new AtomicLong();
+
+    private long chunkSize = 5 * 1024 * 1024;
+    private int parallelism = 3;
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private ProgressCallback progressCallback;
+    private volatile boolean cancelled;
+    private final CountDownLatch cancellation = new CountDownLatch(1);
+
+    private List<Chunk> chunks = new ArrayList<>();
+    private String finalLocation;
+
+    /**
+     * @param request   creation request of the tus endpoint, its headers (e.g. Authorization) are sent with every request.
+     * @param stateFile file where progress is kept between attempts, deleted once the upload is complete.
+     */
+    public UploadEngine(@NonNull OkHttpClient client, @NonNull Request request, @NonNull File file, @NonNull File stateFile) {
+        this.client = client;
+        this.request = request;
+        this.file = file;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Set size of a chunk, default is 5 MB. Ignored when resuming an upload started with another size.
+     */
+    public UploadEngine setChunkSize(long chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /**
+     * Set maximum number of chunks uploaded in parallel, default is 3.
+     */
+    public UploadEngine setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Set retries of a single chunk, default is a {@link RetryPolicy} with its default values.
+     */
+    public UploadEngine setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Set callback which receives progress from the uploading threads.
+     */
+    public UploadEngine setProgressCallback(@Nullable ProgressCallback progressCallback) {
+        this.progressCallback = progressCallback;
+        return this;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the upload, the state file is kept so that it can be resumed later.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancellation.countDown();
+        abortCalls();
+    }
+
+    /**
+     * Upload the file synchronously, resuming a previous upload if possible.
+     *
+     * @return URL of the final upload.
+     */
+    @NonNull
+    public String execute() throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("Unable to read " + file);
+        }
+        if (!loadState()) {
+            reset();
+        }
+        if (finalLocation == null) {
+            runChunks();
+            finalLocation = concatenate();
+            saveState();
+        }
+        //noinspection ResultOfMethodCallIgnored
+        stateFile.delete();
+        return finalLocation;
+    }
+
+    /**
+     * Run every pending chunk with a bounded number of workers, the first one on the calling thread.
+     */
+    private void runChunks() throws IOException {
+        Queue<Chunk> pending = new ConcurrentLinkedQueue<>();
+        for (Chunk chunk : chunks) {
+            if (!chunk.isComplete()) {
+                pending.add(chunk);
+            }
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < Math.min(parallelism, pending.size()); i++) {
+            futures.add(TransferExecutor.get().submit(() -> {
+                runWorker(pending);
+                return null;
+            }));
+        }
+
+        IOException error = null;
+        try {
+            runWorker(pending);
+        } catch (IOException e) {
+            error = e;
+            pending.clear();
+            abortCalls();
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    pending.clear();
+                    abortCalls();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                error = new InterruptedIOException("Upload interrupted");
+            }
+        }
+        saveState();
+
+        if (error != null) {
+            throw error;
+        }
+        if (cancelled) {
+            throw new IOException("Canceled");
+        }
+    }
+
+    private void runWorker(Queue<Chunk> pending) throws IOException {
+        Chunk chunk;
+        while ((chunk = pending.poll()) != null) {
+            runChunk(chunk);
+        }
+    }
+
+    /**
+     * Upload a chunk, retrying from the offset acknowledged by the server.
+     */
+    private void runChunk(Chunk chunk) throws IOException {
+        int retry = 0;
+        boolean sync = chunk.location != null;
+        while (true) {
+            checkCancelled();
+            try {
+                if (chunk.location == null) {
+                    create(chunk);
+                } else if (sync) {
+                    head(chunk);
+                }
+                sync = true;
+                while (chunk.location != null && !chunk.isComplete()) {
+                    patch(chunk);
+                }
+                if (chunk.isComplete()) {
+                    return;
+                }
+            } catch (IOException e) {
+                StatusException status = e instanceof StatusException ? (StatusException) e : null;
+                boolean retryable = !cancelled && (status == null || status.code == 409 || retryPolicy.isRetryable(status.code));
+                if (!retryable || retry >= retryPolicy.getMaxRetries()) {
+                    throw e;
+                }
+                retry++;
+                sleep(retryPolicy.getDelayMillis(retry, status != null ? status.retryAfter : null));
+            }
+        }
+    }
+
+    private void create(Chunk chunk) throws IOException {
+        Request create = request.newBuilder()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Upload-Length", String.valueOf(chunk.length))
+                .header("Upload-Concat", "partial")
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+        try (Response response = newCall(create).execute()) {
+            String location = response.header("Location");
+            if (response.code() != 201 || location == null) {
+                throw new StatusException(response);
+            }
+            chunk.location = resolve(location);
+            setOffset(chunk, 0);
+        }
+        saveState();
+    }
+
+    /**
+     * Ask the server which part of the chunk it has, a chunk which expired is created again.
+     */
+    private void head(Chunk chunk) throws IOException {
+        Request head = locationRequest(chunk.location).head().build();
+        try (Response response = newCall(head).execute()) {
+            if (response.code() == 404 || response.code() == 410 || response.code() == 403) {
+                chunk.location = null;
+                setOffset(chunk, 0);
+                create(chunk);
+                return;
+            }
+            if (!response.isSuccessful()) {
+                throw new StatusException(response);
+            }
+            setOffset(chunk, parseOffset(response));
+        }
+        saveState();
+    }
+
+    private void patch(Chunk chunk) throws IOException {
+        ChunkBody body = new ChunkBody(chunk);
+        Request patch = locationRequest(chunk.location)
+                .header("Upload-Offset", String.valueOf(chunk.offset))
+                .patch(body)
+                .build();
+        long offset;
+        try (Response response = newCall(patch).execute()) {
+            if (response.code() != 204 && response.code() != 200) {
+                // 409 means offsets differ, the chunk is synced with HEAD before the retry.
+                throw new StatusException(response);
+            }
+            offset = parseOffset(response);
+            if (offset <= chunk.offset) {
+                throw new ProtocolException("Upload-Offset did not advance");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Bytes in flight were not acknowledged, they are sent again on retry.
+            report(-body.reported);
+            throw e;
+        }
+        setOffset(chunk, offset, body.reported);
+        saveState();
+    }
+
+    private String concatenate() throws IOException {
+        StringBuilder concat = new StringBuilder("final;");
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i > 0) {
+                concat.append(' ');
+            }
+            concat.append(chunks.get(i).location);
+        }
+        Request create = request.newBuilder()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Upload-Concat", concat.toString())
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+        try (Response response = newCall(create).execute()) {
+            String location = response.header("Location");
+            if (response.code() != 201 || location == null) {
+                throw new StatusException(response);
+            }
+            return resolve(location);
+        }
+    }
+
+    private Request.Builder locationRequest(String location) {
+        Request.Builder builder = request.newBuilder().header("Tus-Resumable", TUS_VERSION);
+        HttpUrl url = HttpUrl.parse(location);
+        return url != null ? builder.url(url) : builder.url(location);
+    }
+
+    private String resolve(String location) {
+        HttpUrl url = request.url().resolve(location);
+        return url != null ? url.toString() : location;
+    }
+
+    private void setOffset(Chunk chunk, long offset) {
+        setOffset(chunk, offset, 0);
+    }
+
+    /**
+     * @param reported bytes of the chunk which have already been reported while they were sent.
+     */
+    private void setOffset(Chunk chunk, long offset, long reported) {
+        long previous = chunk.offset;
+        chunk.offset = Math.min(offset, chunk.length);
+        report(chunk.offset - previous - reported);
+    }
+
+    private void report(long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        long total = uploaded.addAndGet(bytes);
+        if (progressCallback != null && bytes > 0) {
+            progressCallback.onProgress(total, file.length());
+        }
+    }
+
+    private Call newCall(Request request) throws IOException {
+        Call call = client.newCall(request);
+        synchronized (calls) {
+            checkCancelled();
+            calls.add(call);
+        }
+        return call;
+    }
+
+    private void abortCalls() {
+        synchronized (calls) {
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+    }
+
+    private void checkCancelled() throws IOException {
+        if (cancelled) {
+            throw new IOException("Canceled");
+        }
+    }
+
+    /**
+     * Wait before a retry, a cancellation ends the wait right away.
+     */
+    private void sleep(long millis) throws IOException {
+        try {
+            cancellation.await(millis, TimeUnit.MILLISECONDS);
+            checkCancelled();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+    }
+
+    private boolean loadState() {
+        if (!stateFile.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(stateFile)) {
+            properties.load(in);
+            if (!request.url().toString().equals(properties.getProperty("url"))
+                    || !file.getPath().equals(properties.getProperty("file"))
+                    || file.length() != Long.parseLong(properties.getProperty("file.length"))
+                    || file.lastModified() != Long.parseLong(properties.getProperty("file.modified"))) {
+                // A different or changed file can not be resumed.
+                return false;
+            }
+            finalLocation = properties.getProperty("final");
+            int count = Integer.parseInt(properties.getProperty("chunks"));
+            chunks = new ArrayList<>();
+            long done = 0;
+            for (int i = 0; i < count; i++) {
+                String[] values = properties.getProperty("chunk." + i).split(",", -1);
+                Chunk chunk = new Chunk(Long.parseLong(values[0]), Long.parseLong(values[1]));
+                chunk.offset = Long.parseLong(values[2]);
+                chunk.location = values[3].isEmpty() ? null : values[3];
+                chunks.add(chunk);
+                done += chunk.offset;
+            }
+            uploaded.set(done);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private synchronized void saveState() {
+        Properties properties = new Properties();
+        properties.setProperty("url", request.url().toString());
+        properties.setProperty("file", file.getPath());
+        properties.setProperty("file.length", String.valueOf(file.length()));
+        properties.setProperty("file.modified", String.valueOf(file.lastModified()));
+        if (finalLocation != null) {
+            properties.setProperty("final", finalLocation);
+        }
+        properties.setProperty("chunks", String.valueOf(chunks.size()));
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            properties.setProperty("chunk." + i, chunk.start + "," + chunk.length + "," + chunk.offset + ","
+                    + (chunk.location != null ? chunk.location : ""));
+        }
+        try (OutputStream out = new FileOutputStream(stateFile, false)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void reset() {
+        //noinspection ResultOfMethodCallIgnored
+        stateFile.delete();
+        finalLocation = null;
+        uploaded.set(0);
+        chunks = new ArrayList<>();
+        long length = file.length();
+        long start = 0;
+        do {
+            long size = Math.min(chunkSize, length - start);
+            chunks.add(new Chunk(start, size));
+            start += size;
+        } while (start < length);
+    }
+
+    private static long parseOffset(Response response) throws ProtocolException {
+        String offset = response.header("Upload-Offset");
+        try {
+            return Long.parseLong(offset);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid Upload-Offset: " + offset);
+        }
+    }
+
+    private static class Chunk {
+        final long start;
+        final long length;
+        volatile long offset;
+        volatile String location;
+
+        Chunk(long start, long length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        boolean isComplete() {
+            return location != null && offset >= length;
+        }
+    }
+
+    /**
+     * Remaining part of a chunk read straight from the file channel, reporting bytes as they are written.
+     * A body which is written again, e.g. after a connection failure, reports only bytes beyond the first attempt.
+     */
+    private class ChunkBody extends RequestBody {
+
+        private final long position;
+        private final long length;
+        private volatile long reported;
+
+        ChunkBody(Chunk chunk) {
+            this.position = chunk.start + chunk.offset;
+            this.length = chunk.length - chunk.offset;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OFFSET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            long sent = 0;
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                FileChannel channel = randomAccessFile.getChannel();
+                channel.position(position);
+                BufferedSource source = Okio.buffer(Okio.source(Channels.newInputStream(channel)));
+                Buffer buffer = sink.buffer();
+                while (sent < length) {
+                    long step = Math.min(SEGMENT_SIZE, length - sent);
+                    // A read returns at most one 8 KB segment, so the step is buffered first.
+                    source.request(step);
+                    long read = source.read(buffer, step);
+                    if (read == -1) {
+                        throw new ProtocolException("File is shorter than expected");
+                    }
+                    sink.emitCompleteSegments();
+                    sent += read;
+                    if (sent > reported) {
+                        report(sent - reported);
+                        reported = sent;
+                    }
+                    checkCancelled();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unexpected response status, retried only for the codes of the {@link RetryPolicy} and offset conflicts.
+     */
+    private static class StatusException extends ProtocolException {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+        @Nullable
+        final String retryAfter;
+
+        StatusException(Response response) {
+            super("Unexpected response code " + response.code());
+            this.code = response.code();
+            this.retryAfter = response.header("Retry-After");
+        }
+    }
+}
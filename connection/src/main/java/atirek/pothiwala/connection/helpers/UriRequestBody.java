@@ -0,0 +1,73 @@
+package atirek.pothiwala.connection.helpers;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import okhttp3.MediaType;
+
+/**
+ * Upload body of a content {@link Uri}, e.g. from the gallery, streamed from its descriptor without a temporary copy.
+ * The descriptor is opened on first write and kept open while writes fail, so retries after a network error
+ * do not reopen the provider. It is closed once a write is complete, a later write opens it again.
+ */
+public class UriRequestBody extends DescriptorRequestBody {
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private long length = -2;
+
+    public UriRequestBody(@Nullable MediaType mediaType, @NonNull ContentResolver resolver, @NonNull Uri uri) {
+        super(mediaType);
+        this.resolver = resolver;
+        this.uri = uri;
+    }
+
+    @NonNull
+    @Override
+    protected AssetFileDescriptor openDescriptor() throws IOException {
+        AssetFileDescriptor descriptor = resolver.openAssetFileDescriptor(uri, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException("Unable to open " + uri);
+        }
+        return descriptor;
+    }
+
+    @Override
+    public synchronized long contentLength() throws IOException {
+        if (length == -2) {
+            length = queryLength();
+        }
+        return length;
+    }
+
+    /**
+     * Length of the provider when declared, otherwise of the descriptor, -1 when unknown.
+     */
+    private long queryLength() throws IOException {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (RuntimeException e) {
+            // Providers without openable columns fall back to the descriptor.
+        }
+        return super.contentLength();
+    }
+
+    @Override
+    protected void closeChannel(@NonNull FileChannel channel, boolean complete) throws IOException {
+        if (complete) {
+            close();
+        }
+    }
+}
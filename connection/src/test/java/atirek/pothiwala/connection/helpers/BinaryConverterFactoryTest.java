@@ -0,0 +1,83 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+
+public class BinaryConverterFactoryTest {
+
+    interface Api {
+        @GET("bytes")
+        Call<ByteString> bytes();
+
+        @GET("source")
+        Call<BufferedSource> source();
+
+        @POST("upload")
+        Call<ByteString> upload(@Body ByteString body);
+    }
+
+    // Not valid UTF-8, so any charset decoding would alter it.
+    private static final ByteString PAYLOAD = ByteString.decodeHex("fffe00c32880");
+
+    private MockWebServer server;
+    private Api api;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        api = ClientRegistry.getClient(server.url("/").toString(), new ClientConfig()).create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void readsResponseAsByteString() throws IOException {
+        server.enqueue(binary(PAYLOAD));
+
+        assertEquals(PAYLOAD, api.bytes().execute().body());
+    }
+
+    @Test
+    public void readsResponseAsBufferedSource() throws IOException {
+        server.enqueue(binary(PAYLOAD));
+
+        BufferedSource source = api.source().execute().body();
+
+        assertEquals(PAYLOAD, source.readByteString());
+    }
+
+    @Test
+    public void sendsByteStringAsOctetStream() throws Exception {
+        server.enqueue(binary(PAYLOAD));
+
+        api.upload(PAYLOAD).execute();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("application/octet-stream", request.getHeader("Content-Type"));
+        assertEquals(PAYLOAD, request.getBody().readByteString());
+    }
+
+    private static MockResponse binary(ByteString payload) {
+        return new MockResponse().setHeader("Content-Type", "application/octet-stream").setBody(new Buffer().write(payload));
+    }
+}
@@ -0,0 +1,73 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import atirek.pothiwala.connection.extensions.DnsStats;
+import okhttp3.Dns;
+
+public class CachingDnsTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final Dns resolver = hostname -> {
+        lookups.incrementAndGet();
+        if (hostname.equals("unknown.test")) {
+            throw new UnknownHostException(hostname);
+        }
+        return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{10, 0, 0, 1}));
+    };
+
+    @Test
+    public void servesRepeatedLookupsFromCache() throws UnknownHostException {
+        CachingDns dns = new CachingDns(resolver);
+
+        dns.lookup("api.test");
+        dns.lookup("api.test");
+        dns.lookup("cdn.test");
+
+        DnsStats stats = dns.getStats();
+        assertEquals(2, lookups.get());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void resolvesAgainAfterTtlOrEviction() throws Exception {
+        CachingDns dns = new CachingDns(resolver).setTtl(20, TimeUnit.MILLISECONDS);
+
+        dns.lookup("api.test");
+        Thread.sleep(40);
+        dns.lookup("api.test");
+        dns.evict("api.test");
+        dns.lookup("api.test");
+
+        assertEquals(3, lookups.get());
+        assertEquals(0, dns.getStats().getHits());
+    }
+
+    @Test
+    public void doesNotCacheFailures() {
+        CachingDns dns = new CachingDns(resolver);
+        for (int i = 0; i < 2; i++) {
+            try {
+                dns.lookup("unknown.test");
+                fail("Lookup should fail");
+            } catch (UnknownHostException expected) {
+                // Expected.
+            }
+        }
+
+        assertEquals(2, lookups.get());
+        assertEquals(2, dns.getStats().getFailures());
+        assertEquals(0, dns.getStats().getSize());
+    }
+}
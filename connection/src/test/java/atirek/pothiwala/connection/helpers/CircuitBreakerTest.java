@@ -0,0 +1,134 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.CircuitState;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class CircuitBreakerTest {
+
+    private static final String HOST = "api.test";
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker = new CircuitBreaker()
+            .setWindow(10, 4)
+            .setOpenDuration(50, TimeUnit.MILLISECONDS)
+            .setHalfOpenCalls(2)
+            .setListener((host, from, to) -> transitions.add(from + ">" + to));
+
+    @Test
+    public void opensOnFailureRateAndProbesWhenHalfOpen() throws InterruptedException {
+        call(false);
+        call(true);
+        call(false);
+        assertEquals(CircuitState.closed, breaker.getState(HOST));
+        call(true);
+
+        assertEquals(CircuitState.open, breaker.getState(HOST));
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(HOST));
+
+        Thread.sleep(80);
+        long first = breaker.tryAcquire(HOST);
+        long second = breaker.tryAcquire(HOST);
+        assertNotEquals(CircuitBreaker.REJECTED, first);
+        assertNotEquals(CircuitBreaker.REJECTED, second);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(HOST));
+        breaker.record(HOST, first, FAST, false);
+        breaker.record(HOST, second, FAST, false);
+
+        assertEquals(CircuitState.closed, breaker.getState(HOST));
+        assertEquals("[closed>open, open>halfOpen, halfOpen>closed]", transitions.toString());
+    }
+
+    @Test
+    public void failedProbeOpensAgain() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        Thread.sleep(80);
+
+        long probe = breaker.tryAcquire(HOST);
+        breaker.record(HOST, probe, FAST, true);
+
+        assertEquals(CircuitState.open, breaker.getState(HOST));
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(HOST));
+    }
+
+    @Test
+    public void ignoresCallsOfAnEarlierState() throws InterruptedException {
+        long slow = breaker.tryAcquire(HOST);
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        Thread.sleep(80);
+        long probe = breaker.tryAcquire(HOST);
+
+        // Admitted while closed, it completes during the probes and must not count as one.
+        breaker.record(HOST, slow, TimeUnit.SECONDS.toNanos(20), true);
+        assertEquals(CircuitState.halfOpen, breaker.getState(HOST));
+
+        breaker.record(HOST, probe, FAST, false);
+        long next = breaker.tryAcquire(HOST);
+        breaker.record(HOST, next, FAST, false);
+        assertEquals(CircuitState.closed, breaker.getState(HOST));
+    }
+
+    @Test
+    public void opensOnSlowCalls() {
+        breaker.setSlowCall(1, TimeUnit.SECONDS, 0.75f);
+        for (int i = 0; i < 4; i++) {
+            long permit = breaker.tryAcquire(HOST);
+            assertNotEquals(CircuitBreaker.REJECTED, permit);
+            breaker.record(HOST, permit, i == 0 ? FAST : TimeUnit.SECONDS.toNanos(2), false);
+        }
+
+        assertEquals(CircuitState.open, breaker.getState(HOST));
+        assertEquals(CircuitState.closed, breaker.getState("other.test"));
+    }
+
+    @Test
+    public void interceptorRejectsCallsToOpenHost() throws IOException {
+        MockWebServer server = new MockWebServer();
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        server.start();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new CircuitBreakerInterceptor(breaker)).build();
+        Request request = new Request.Builder().url(server.url("/")).build();
+        try {
+            for (int i = 0; i < 4; i++) {
+                try (Response response = client.newCall(request).execute()) {
+                    assertEquals(503, response.code());
+                }
+            }
+            try {
+                client.newCall(request).execute();
+                fail("Call should be rejected");
+            } catch (CircuitBreaker.OpenException expected) {
+                assertEquals(4, server.getRequestCount());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private void call(boolean failed) {
+        long permit = breaker.tryAcquire(HOST);
+        assertNotEquals(CircuitBreaker.REJECTED, permit);
+        breaker.record(HOST, permit, FAST, failed);
+    }
+}
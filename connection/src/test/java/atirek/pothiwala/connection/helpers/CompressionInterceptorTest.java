@@ -0,0 +1,122 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import atirek.pothiwala.connection.extensions.CompressionStats;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+
+public class CompressionInterceptorTest {
+
+    private MockWebServer server;
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .addInterceptor(new CompressionInterceptor())
+            .build();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        CompressionInterceptor.resetStats();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void compressesRequestAndDecodesResponse() throws Exception {
+        String json = json();
+        server.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzip(json)));
+
+        Request request = new Request.Builder()
+                .url(server.url("/sync"))
+                .post(RequestCreator.compress(RequestBody.create(MediaType.parse("application/json"), json), 1024))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals(json, response.body().string());
+        }
+
+        RecordedRequest recorded = server.takeRequest();
+        assertEquals("gzip", recorded.getHeader("Content-Encoding"));
+        assertEquals(json, Okio.buffer(new GzipSource(recorded.getBody())).readUtf8());
+
+        CompressionStats stats = CompressionInterceptor.getStats().get(server.url("/sync").host());
+        assertEquals(1, stats.getRequests());
+        assertEquals(json.length(), stats.getRequestBytes());
+        assertTrue(stats.getRequestRatio() < 0.5);
+        assertEquals(1, stats.getResponses());
+        assertEquals(json.length(), stats.getResponseBytes());
+        assertTrue(stats.getResponseRatio() < 0.5);
+    }
+
+    @Test
+    public void keepsDeclaredGzipHeaderOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        Request request = new Request.Builder()
+                .url(server.url("/small"))
+                .header("Content-Encoding", "gzip")
+                .post(RequestCreator.createGzipJson("{}"))
+                .build();
+        client.newCall(request).execute().close();
+
+        RecordedRequest recorded = server.takeRequest();
+        assertEquals(1, recorded.getHeaders().values("Content-Encoding").size());
+        assertEquals("{}", Okio.buffer(new GzipSource(recorded.getBody())).readUtf8());
+    }
+
+    @Test
+    public void sendsSmallBodiesAsTheyAre() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        Request request = new Request.Builder()
+                .url(server.url("/small"))
+                .post(RequestCreator.compress(RequestBody.create(MediaType.parse("application/json"), "{}"), 1024))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals("ok", response.body().string());
+        }
+
+        RecordedRequest recorded = server.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertEquals("{}", recorded.getBody().readUtf8());
+    }
+
+    private static String json() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"item\"}");
+        }
+        return builder.append(']').toString();
+    }
+
+    private static Buffer gzip(String value) throws IOException {
+        Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(value);
+        }
+        return buffer;
+    }
+}
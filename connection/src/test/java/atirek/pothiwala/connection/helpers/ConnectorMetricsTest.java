@@ -0,0 +1,40 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import atirek.pothiwala.connection.extensions.Phase;
+import okhttp3.Request;
+
+public class ConnectorMetricsTest {
+
+    @Before
+    @After
+    public void reset() {
+        ConnectorMetrics.reset();
+    }
+
+    @Test
+    public void groupsUntaggedRequestsByHost() {
+        Request first = new Request.Builder().url("https://example.com/users/1").build();
+        Request second = new Request.Builder().url("https://example.com/users/2").build();
+
+        assertEquals("example.com", ConnectorMetrics.tagOf(first));
+        assertEquals(ConnectorMetrics.tagOf(first), ConnectorMetrics.tagOf(second));
+    }
+
+    @Test
+    public void boundsNumberOfTags() {
+        for (int i = 0; i < ConnectorMetrics.MAX_TAGS + 10; i++) {
+            ConnectorMetrics.record("tag" + i, Phase.total, 1_000_000);
+        }
+
+        assertEquals(ConnectorMetrics.MAX_TAGS + 1, ConnectorMetrics.snapshot().getTags().size());
+        assertNull(ConnectorMetrics.histogram("tag" + ConnectorMetrics.MAX_TAGS, Phase.total));
+        assertEquals(10, ConnectorMetrics.histogram(ConnectorMetrics.OVERFLOW_TAG, Phase.total).getCount());
+    }
+}
@@ -0,0 +1,186 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+public class DownloadEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private RangeDispatcher dispatcher;
+    private final OkHttpClient client = new OkHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        dispatcher = new RangeDispatcher(randomBytes(8 * 1024 * 1024));
+        server.setDispatcher(dispatcher);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void downloadsInParallelSegments() throws IOException {
+        File target = new File(folder.getRoot(), "file.bin");
+        File result = engine(target).setSegments(4).execute();
+
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.toPath()));
+        assertEquals(4, server.getRequestCount());
+        assertFalse(new File(target.getPath() + ".part").exists());
+        assertFalse(new File(target.getPath() + ".meta").exists());
+    }
+
+    @Test
+    public void resumesAfterDroppedConnection() throws IOException {
+        File target = new File(folder.getRoot(), "file.bin");
+        dispatcher.dropNextBody = true;
+        try {
+            engine(target).setSegments(1).execute();
+            fail("Download should have been interrupted");
+        } catch (IOException expected) {
+            assertTrue(new File(target.getPath() + ".meta").exists());
+        }
+
+        File result = engine(target).setSegments(1).execute();
+
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.toPath()));
+        String resumed = dispatcher.ranges.get(dispatcher.ranges.size() - 1);
+        assertFalse(resumed.startsWith("bytes=0-"));
+    }
+
+    @Test
+    public void restartsWhenRemoteFileChanged() throws IOException {
+        File target = new File(folder.getRoot(), "file.bin");
+        dispatcher.dropNextBody = true;
+        try {
+            engine(target).setSegments(1).execute();
+            fail("Download should have been interrupted");
+        } catch (IOException expected) {
+            // Partial file is kept.
+        }
+
+        dispatcher.content = randomBytes(3 * 1024 * 1024);
+        dispatcher.eTag = "\"v2\"";
+        File result = engine(target).setSegments(1).execute();
+
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.toPath()));
+    }
+
+    @Test
+    public void downloadsWithoutRangeSupport() throws IOException {
+        dispatcher.acceptRanges = false;
+        File target = new File(folder.getRoot(), "file.bin");
+        File result = engine(target).setSegments(4).execute();
+
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.toPath()));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void revalidatesWithConditionalRequest() throws IOException {
+        File target = new File(folder.getRoot(), "file.bin");
+        Request conditional = new Request.Builder().url(server.url("/file.bin")).header("If-None-Match", "\"v1\"").build();
+        try {
+            new DownloadEngine(client, conditional, target).execute();
+            fail("Download should not be modified");
+        } catch (DownloadEngine.NotModifiedException expected) {
+            assertEquals(1, server.getRequestCount());
+            assertFalse(target.exists());
+        }
+
+        dispatcher.eTag = "\"v2\"";
+        File result = new DownloadEngine(client, conditional, target).setSegments(4).execute();
+
+        assertArrayEquals(dispatcher.content, Files.readAllBytes(result.toPath()));
+        assertEquals(5, server.getRequestCount());
+    }
+
+    private DownloadEngine engine(File target) {
+        Request request = new Request.Builder().url(server.url("/file.bin")).build();
+        return new DownloadEngine(client, request, target);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Serves a file with support for Range, If-Range and If-None-Match headers.
+     */
+    private static class RangeDispatcher extends Dispatcher {
+        volatile byte[] content;
+        volatile String eTag = "\"v1\"";
+        volatile boolean acceptRanges = true;
+        volatile boolean dropNextBody;
+        final List<String> ranges = new CopyOnWriteArrayList<>();
+
+        RangeDispatcher(byte[] content) {
+            this.content = content;
+        }
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String range = request.getHeader("Range");
+            String ifRange = request.getHeader("If-Range");
+            MockResponse response = new MockResponse().setHeader("ETag", eTag);
+            if (eTag.equals(request.getHeader("If-None-Match"))) {
+                return response.setResponseCode(304);
+            }
+            if (dropNextBody) {
+                dropNextBody = false;
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+
+            boolean useRange = acceptRanges && range != null && (ifRange == null || ifRange.equals(eTag));
+            if (!useRange) {
+                return response.setResponseCode(200)
+                        .setHeader("Accept-Ranges", acceptRanges ? "bytes" : "none")
+                        .setBody(new Buffer().write(content));
+            }
+
+            ranges.add(range);
+            String[] values = range.substring("bytes=".length()).split("-", -1);
+            int start = Integer.parseInt(values[0]);
+            int end = values[1].isEmpty() ? content.length - 1 : Integer.parseInt(values[1]);
+            return response.setResponseCode(206)
+                    .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length)
+                    .setBody(new Buffer().write(content, start, end - start + 1));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import okhttp3.Request;
+
+public class DownloadStoreTest {
+
+    private static final String URL = "https://example.com/files/report.pdf";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsOneFilePerUrl() throws IOException {
+        DownloadStore store = new DownloadStore(folder.getRoot());
+        File first = store.put(URL, download(store, URL, 100), "\"v1\"").getFile();
+        File second = store.put(URL, download(store, URL, 200), "\"v2\"").getFile();
+
+        assertEquals(first, second);
+        assertTrue(second.getName().endsWith(".pdf"));
+        assertEquals(200, store.size());
+        assertEquals("\"v2\"", store.get(URL).getValidator());
+        // Only the stored file and the index are left behind.
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        DownloadStore store = new DownloadStore(folder.getRoot()).setMaxSize(250);
+        store.put("https://example.com/a", download(store, "https://example.com/a", 100), null);
+        store.put("https://example.com/b", download(store, "https://example.com/b", 100), null);
+        store.verify(store.get("https://example.com/a"));
+
+        store.put("https://example.com/c", download(store, "https://example.com/c", 100), null);
+
+        assertNotNull(store.get("https://example.com/a"));
+        assertNull(store.get("https://example.com/b"));
+        assertNotNull(store.get("https://example.com/c"));
+        assertEquals(200, store.size());
+    }
+
+    @Test
+    public void keepsAccessOrderAcrossReload() throws IOException {
+        DownloadStore store = new DownloadStore(folder.getRoot());
+        store.put("https://example.com/a", download(store, "https://example.com/a", 100), null);
+        store.put("https://example.com/b", download(store, "https://example.com/b", 100), null);
+        store.verify(store.get("https://example.com/a"));
+
+        DownloadStore reloaded = new DownloadStore(folder.getRoot()).setMaxSize(100);
+
+        assertNotNull(reloaded.get("https://example.com/a"));
+        assertNull(reloaded.get("https://example.com/b"));
+    }
+
+    @Test
+    public void removesCorruptedFiles() throws IOException {
+        DownloadStore store = new DownloadStore(folder.getRoot());
+        DownloadStore.Entry entry = store.put(URL, download(store, URL, 100), "\"v1\"");
+        try (RandomAccessFile file = new RandomAccessFile(entry.getFile(), "rw")) {
+            file.seek(10);
+            file.write(~file.read());
+        }
+
+        assertFalse(store.verify(entry));
+        assertNull(store.get(URL));
+        assertFalse(entry.getFile().exists());
+    }
+
+    @Test
+    public void reloadsIndex() throws IOException {
+        DownloadStore store = new DownloadStore(folder.getRoot());
+        File download = download(store, URL, 100);
+        byte[] content = Files.readAllBytes(download.toPath());
+        store.put(URL, download, "Wed, 21 Oct 2015 07:28:00 GMT");
+
+        DownloadStore.Entry entry = new DownloadStore(folder.getRoot()).get(URL);
+
+        assertNotNull(entry);
+        assertTrue(new DownloadStore(folder.getRoot()).verify(entry));
+        assertArrayEquals(content, Files.readAllBytes(entry.getFile().toPath()));
+        Request request = DownloadStore.conditional(new Request.Builder().url(URL), entry.getValidator()).build();
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", request.header("If-Modified-Since"));
+    }
+
+    private static File download(DownloadStore store, String url, int size) throws IOException {
+        File file = store.createTempFile(url);
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31 + size);
+        }
+        Files.write(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,87 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.NetworkQuality;
+
+public class NetworkQualityEstimatorTest {
+
+    private final NetworkQualityEstimator estimator = new NetworkQualityEstimator();
+
+    @Test
+    public void classifiesByWorseOfRttAndThroughput() {
+        assertEquals(NetworkQuality.unknown, estimator.getQuality());
+
+        estimator.recordHttpRtt(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(NetworkQuality.excellent, estimator.getQuality());
+
+        // 1 MB in 20 seconds is 400 kbps.
+        estimator.recordDownstream(1000 * 1000, TimeUnit.SECONDS.toNanos(20));
+        assertEquals(400, estimator.getDownstreamKbps());
+        assertEquals(NetworkQuality.moderate, estimator.getQuality());
+    }
+
+    @Test
+    public void prefersMeasuredThroughputOverLinkBandwidth() {
+        estimator.setLinkBandwidth(100000, 50000);
+        assertEquals(NetworkQuality.excellent, estimator.getQuality());
+
+        estimator.recordDownstream(100 * 1000, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(80, estimator.getDownstreamKbps());
+        assertEquals(NetworkQuality.poor, estimator.getQuality());
+        assertEquals(50000, estimator.getUpstreamKbps());
+
+        estimator.reset();
+        assertEquals(NetworkQuality.unknown, estimator.getQuality());
+    }
+
+    @Test
+    public void ignoresSlowEndpoints() {
+        for (int i = 0; i < 5; i++) {
+            estimator.recordHttpRtt(TimeUnit.MILLISECONDS.toNanos(60));
+        }
+        estimator.recordHttpRtt(TimeUnit.SECONDS.toNanos(5));
+        estimator.recordHttpRtt(TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(60, estimator.getHttpRttMillis());
+        assertEquals(NetworkQuality.excellent, estimator.getQuality());
+    }
+
+    @Test
+    public void prefersTransportRtt() {
+        estimator.recordHttpRtt(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(NetworkQuality.poor, estimator.getQuality());
+
+        estimator.recordTransportRtt(TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(40, estimator.getRttMillis());
+        assertEquals(NetworkQuality.excellent, estimator.getQuality());
+    }
+
+    @Test
+    public void adaptsParallelismAndTimeouts() {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        assertEquals(4, estimator.adjustParallelism(4));
+        assertEquals(minute, estimator.adjustTimeout(minute));
+
+        estimator.recordHttpRtt(TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(4, estimator.adjustParallelism(4));
+        assertEquals(minute / 4, estimator.adjustTimeout(minute));
+        assertEquals(TimeUnit.SECONDS.toMillis(10), estimator.adjustTimeout(TimeUnit.SECONDS.toMillis(20)));
+
+        estimator.reset();
+        estimator.recordHttpRtt(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(2, estimator.adjustParallelism(4));
+        assertEquals(minute, estimator.adjustTimeout(minute));
+
+        estimator.reset();
+        estimator.recordHttpRtt(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, estimator.adjustParallelism(4));
+
+        estimator.setEnabled(false);
+        assertEquals(4, estimator.adjustParallelism(4));
+    }
+}
@@ -0,0 +1,136 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import atirek.pothiwala.connection.extensions.Phase;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+
+public class RequestCoalescerTest {
+
+    interface Api {
+        @GET("items")
+        Call<String> items(@Header("Authorization") String authorization);
+    }
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final List<String> results = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+    private Api api;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        api = ClientRegistry.getClient(server.url("/").toString(), new ClientConfig()).create(Api.class);
+        ConnectorMetrics.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        ConnectorMetrics.reset();
+    }
+
+    @Test
+    public void keysOnMethodUrlAndCredentials() {
+        Request first = new Request.Builder().url("https://example.com/items").header("Authorization", "first").build();
+        Request second = first.newBuilder().header("Authorization", "second").build();
+
+        assertEquals(RequestCoalescer.key(first), RequestCoalescer.key(first.newBuilder().build()));
+        assertNotEquals(RequestCoalescer.key(first), RequestCoalescer.key(second));
+        assertNull(RequestCoalescer.key(first.newBuilder().post(RequestBody.create(null, "")).build()));
+    }
+
+    @Test
+    public void doesNotShareAcrossScopes() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("first").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("second").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        CountDownLatch done = new CountDownLatch(2);
+
+        coalescer.enqueue(api.items(null), new Recorder("first", done), "first");
+        coalescer.enqueue(api.items(null), new Recorder("second", done), "second");
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void sharesOneCallAndRecordsItsDispatch() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("items").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        CountDownLatch done = new CountDownLatch(2);
+
+        coalescer.enqueue(api.items("token"), new Recorder("first", done));
+        coalescer.enqueue(api.items("token"), new Recorder("second", done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertTrue(results.contains("first:items"));
+        assertTrue(results.contains("second:items"));
+        assertEquals(1, ConnectorMetrics.histogram(server.getHostName(), Phase.dispatch).getCount());
+    }
+
+    @Test
+    public void cancelsSharedCallWithLastSubscriber() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("items").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        CountDownLatch done = new CountDownLatch(2);
+        Call<String> first = api.items("token");
+        Call<String> second = api.items("token");
+        coalescer.enqueue(first, new Recorder("first", done));
+        coalescer.enqueue(second, new Recorder("second", done));
+
+        assertTrue(coalescer.cancel(first));
+        assertEquals(1, coalescer.getInFlightCount());
+        assertTrue(coalescer.cancel(second));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, coalescer.getInFlightCount());
+        assertEquals("[first:Canceled, second:Canceled]", results.toString());
+        assertFalse(coalescer.cancel(first));
+    }
+
+    private class Recorder implements Callback<String> {
+        private final String name;
+        private final CountDownLatch done;
+
+        Recorder(String name, CountDownLatch done) {
+            this.name = name;
+            this.done = done;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
+            results.add(name + ":" + response.body());
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
+            results.add(name + ":" + t.getMessage());
+            done.countDown();
+        }
+    }
+}
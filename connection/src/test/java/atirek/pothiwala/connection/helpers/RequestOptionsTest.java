@@ -0,0 +1,71 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import atirek.pothiwala.connection.extensions.ConnectListener;
+import atirek.pothiwala.connection.extensions.ErrorCode;
+import atirek.pothiwala.connection.extensions.Lane;
+
+public class RequestOptionsTest {
+
+    private final ConnectListener defaultListener = new FakeListener();
+    private final RetryPolicy defaultPolicy = new RetryPolicy();
+    private final RequestOptions defaults = new RequestOptions()
+            .setListener(defaultListener)
+            .setRetryPolicy(defaultPolicy)
+            .setLane(Lane.normal);
+
+    @Test
+    public void takesUnsetValuesFromDefaults() {
+        Executor executor = Runnable::run;
+        RequestOptions options = new RequestOptions().setCallbackExecutor(executor).withDefaults(defaults);
+
+        assertSame(defaultListener, options.getListener());
+        assertSame(defaultPolicy, options.getRetryPolicy());
+        assertSame(executor, options.getCallbackExecutor());
+        assertEquals(Lane.normal, options.getLane());
+    }
+
+    @Test
+    public void overridesDefaults() {
+        ConnectListener listener = new FakeListener();
+        RequestOptions options = new RequestOptions()
+                .setListener(listener)
+                .setRetryPolicy(null)
+                .setLane(Lane.interactive)
+                .withDefaults(defaults);
+
+        assertSame(listener, options.getListener());
+        assertNull(options.getRetryPolicy());
+        assertEquals(Lane.interactive, options.getLane());
+    }
+
+    @Test
+    public void copiesOptionsOfTheCall() {
+        RequestOptions options = new RequestOptions().setLane(Lane.background);
+        RequestOptions resolved = options.withDefaults(defaults);
+        options.setLane(Lane.interactive).setListener(new FakeListener());
+
+        assertEquals(Lane.background, resolved.getLane());
+        assertSame(defaultListener, resolved.getListener());
+    }
+
+    private static class FakeListener implements ConnectListener {
+        @Override
+        public void onResult(int statusCode, @Nullable String data, @Nullable String message) {
+        }
+
+        @Override
+        public void onError(@NonNull ErrorCode code) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import atirek.pothiwala.connection.extensions.Lane;
+
+public class RequestSchedulerTest {
+
+    private final RequestScheduler scheduler = new RequestScheduler();
+    private final List<String> started = new ArrayList<>();
+    private final List<String> aborted = new ArrayList<>();
+
+    @Test
+    public void limitsConcurrencyPerLane() {
+        scheduler.setMaxConcurrent(Lane.normal, 2);
+        for (int i = 0; i < 4; i++) {
+            scheduler.enqueue(new FakeJob("normal" + i, Lane.normal));
+        }
+
+        assertEquals(2, scheduler.getRunning().size());
+        assertEquals(2, scheduler.getPending().size());
+
+        scheduler.finished(scheduler.getRunning().get(0));
+
+        assertEquals(3, started.size());
+        assertEquals("normal2", started.get(2));
+    }
+
+    @Test
+    public void freeSlotGoesToHigherLane() {
+        scheduler.setMaxRequests(1);
+        FakeJob first = new FakeJob("first", Lane.normal);
+        scheduler.enqueue(first);
+        scheduler.enqueue(new FakeJob("prefetch", Lane.background));
+        scheduler.enqueue(new FakeJob("tap", Lane.interactive));
+
+        assertEquals(1, started.size());
+
+        scheduler.finished(first);
+
+        assertEquals("tap", started.get(1));
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void fullLaneDoesNotBlockOtherLanes() {
+        scheduler.setMaxConcurrent(Lane.interactive, 1);
+        scheduler.enqueue(new FakeJob("first", Lane.interactive));
+        scheduler.enqueue(new FakeJob("second", Lane.interactive));
+        scheduler.enqueue(new FakeJob("prefetch", Lane.background));
+
+        assertEquals("[first, prefetch]", started.toString());
+        assertEquals(1, scheduler.getPending().size());
+    }
+
+    @Test
+    public void cancelsQueuedAndRunningJobsByTag() {
+        scheduler.setMaxConcurrent(Lane.normal, 1);
+        scheduler.enqueue(new FakeJob("screen", Lane.normal));
+        scheduler.enqueue(new FakeJob("screen", Lane.normal));
+        FakeJob other = new FakeJob("other", Lane.normal);
+        scheduler.enqueue(other);
+
+        assertEquals(2, scheduler.cancel("screen"));
+
+        assertEquals("[screen:false, screen:true]", aborted.toString());
+        assertFalse(scheduler.cancelQueued(scheduler.getRunning().get(0)));
+        assertTrue(scheduler.getPending().isEmpty());
+        assertEquals(other, scheduler.getRunning().get(0));
+    }
+
+    private class FakeJob extends RequestScheduler.Job {
+
+        FakeJob(@NonNull String tag, @NonNull Lane lane) {
+            super(tag, lane, null, false);
+        }
+
+        @Override
+        protected void start() {
+            started.add(getTag());
+        }
+
+        @Override
+        protected void abort(boolean started) {
+            aborted.add(getTag() + ":" + started);
+            if (started) {
+                scheduler.finished(this);
+            }
+        }
+    }
+}
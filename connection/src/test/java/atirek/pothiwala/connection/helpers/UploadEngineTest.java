@@ -0,0 +1,227 @@
+package atirek.pothiwala.connection.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+public class UploadEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TusDispatcher dispatcher;
+    private final OkHttpClient client = new OkHttpClient();
+    private File file;
+    private File stateFile;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        dispatcher = new TusDispatcher();
+        server.setDispatcher(dispatcher);
+        server.start();
+
+        content = new byte[1024 * 1024 + 123];
+        new Random(7).nextBytes(content);
+        file = folder.newFile("video.bin");
+        Files.write(file.toPath(), content);
+        stateFile = new File(folder.getRoot(), "video.upload");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsChunksInParallel() throws IOException {
+        AtomicLong progress = new AtomicLong();
+        String location = engine()
+                .setProgressCallback((uploaded, total) -> progress.set(uploaded))
+                .execute();
+
+        assertArrayEquals(content, dispatcher.finalUpload(location));
+        assertEquals(5, dispatcher.partials.get());
+        assertEquals(content.length, progress.get());
+        assertFalse(stateFile.exists());
+    }
+
+    @Test
+    public void reportsEveryByteOnce() throws IOException {
+        List<Long> progress = new ArrayList<>();
+        engine().setParallelism(1)
+                .setProgressCallback((uploaded, total) -> progress.add(uploaded))
+                .execute();
+
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        assertEquals(content.length, (long) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void retriesChunkFromAcknowledgedOffset() throws IOException {
+        dispatcher.failPatches.set(1);
+
+        String location = engine().execute();
+
+        assertArrayEquals(content, dispatcher.finalUpload(location));
+        // Only the part of the chunk which the server did not keep is sent again.
+        assertTrue(dispatcher.receivedBytes.get() < content.length + 256 * 1024);
+    }
+
+    @Test
+    public void cancelEndsRetryBackoff() throws InterruptedException {
+        dispatcher.failPatches.set(1);
+        UploadEngine engine = engine().setParallelism(1)
+                .setRetryPolicy(new RetryPolicy().setBackoff(30, 30, TimeUnit.SECONDS));
+        new Thread(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException ignored) {
+            }
+            engine.cancel();
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            engine.execute();
+            fail("Upload should be cancelled");
+        } catch (IOException expected) {
+            assertTrue(engine.isCancelled());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void resumesFromStateFile() throws IOException {
+        dispatcher.failPatches.set(3);
+        try {
+            engine().setParallelism(1).setRetryPolicy(new RetryPolicy().setMaxRetries(0)).execute();
+            fail("Upload should fail");
+        } catch (IOException expected) {
+            assertTrue(stateFile.exists());
+        }
+        int partials = dispatcher.partials.get();
+
+        String location = engine().execute();
+
+        assertArrayEquals(content, dispatcher.finalUpload(location));
+        assertEquals(5, dispatcher.partials.get());
+        assertTrue(partials > 0);
+    }
+
+    private UploadEngine engine() {
+        Request request = new Request.Builder().url(server.url("/files/")).build();
+        return new UploadEngine(client, request, file, stateFile)
+                .setChunkSize(256 * 1024)
+                .setParallelism(3)
+                .setRetryPolicy(new RetryPolicy().setBackoff(1, 10, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Minimal tus server with the creation and concatenation extensions, a failing PATCH keeps half of its data.
+     */
+    private static class TusDispatcher extends Dispatcher {
+
+        final Map<String, Buffer> uploads = new ConcurrentHashMap<>();
+        final Map<String, Long> lengths = new ConcurrentHashMap<>();
+        final AtomicInteger partials = new AtomicInteger();
+        final AtomicInteger failPatches = new AtomicInteger();
+        final AtomicLong receivedBytes = new AtomicLong();
+        private final AtomicInteger ids = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String path = request.getPath();
+            switch (request.getMethod()) {
+                case "POST":
+                    return create(request);
+                case "HEAD":
+                    Buffer upload = uploads.get(path);
+                    return upload == null ? new MockResponse().setResponseCode(404)
+                            : new MockResponse().setHeader("Upload-Offset", upload.size());
+                case "PATCH":
+                    return patch(path, request);
+                default:
+                    return new MockResponse().setResponseCode(405);
+            }
+        }
+
+        private MockResponse create(RecordedRequest request) {
+            String concat = request.getHeader("Upload-Concat");
+            String path = "/files/" + ids.incrementAndGet();
+            if (concat != null && concat.startsWith("final;")) {
+                Buffer result = new Buffer();
+                for (String location : concat.substring(6).split(" ")) {
+                    String partial = location.substring(location.indexOf("/files/"));
+                    result.write(uploads.get(partial).clone(), uploads.get(partial).size());
+                }
+                uploads.put(path, result);
+            } else {
+                partials.incrementAndGet();
+                uploads.put(path, new Buffer());
+                lengths.put(path, Long.parseLong(request.getHeader("Upload-Length")));
+            }
+            return new MockResponse().setResponseCode(201).setHeader("Location", path);
+        }
+
+        private MockResponse patch(String path, RecordedRequest request) {
+            Buffer upload = uploads.get(path);
+            long offset = Long.parseLong(request.getHeader("Upload-Offset"));
+            if (upload == null) {
+                return new MockResponse().setResponseCode(404);
+            }
+            synchronized (upload) {
+                if (offset != upload.size()) {
+                    return new MockResponse().setResponseCode(409);
+                }
+                Buffer body = request.getBody();
+                receivedBytes.addAndGet(body.size());
+                if (failPatches.getAndDecrement() > 0) {
+                    upload.write(body, body.size() / 2);
+                    return new MockResponse().setResponseCode(500);
+                }
+                upload.write(body, body.size());
+                return new MockResponse().setResponseCode(204).setHeader("Upload-Offset", upload.size());
+            }
+        }
+
+        byte[] finalUpload(String location) {
+            return uploads.get(location.substring(location.indexOf("/files/"))).readByteArray();
+        }
+    }
+}